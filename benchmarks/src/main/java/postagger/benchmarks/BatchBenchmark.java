@@ -0,0 +1,81 @@
+package postagger.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import postagger.Sudi;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures whole-file tagging and accuracy evaluation. Parallelism 0 is the sequential, map-based viterbi(String);
+ * higher values use the parallel compiled path. The "tokens" counter is reported as tokens/sec.
+ **/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+    @Param({"45"})
+    public int numTags;
+
+    @Param({"0", "1", "2", "4"})
+    public int parallelism;
+
+    private Path directory;
+    private Path sentencesFile;
+    private Path tagsFile;
+    private long tokens;
+    private Sudi sudi;
+
+    /**
+     * counts the tokens tagged, so JMH reports them per second next to files per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Tokens {
+        public long tokens;
+    }
+
+    @Setup(Level.Trial)
+    public void train() throws IOException {
+        SyntheticCorpus corpus = new SyntheticCorpus(numTags, 20000, 42);
+        directory = Files.createTempDirectory("sudi-batch");
+        Path trainSentences = directory.resolve("train-sentences.txt");
+        Path trainTags = directory.resolve("train-tags.txt");
+        corpus.write(trainSentences, trainTags, 20000, 20);
+        sudi = new Sudi(trainSentences.toString(), trainTags.toString());
+        Files.delete(trainSentences);
+        Files.delete(trainTags);
+
+        sentencesFile = directory.resolve("test-sentences.txt");
+        tagsFile = directory.resolve("test-tags.txt");
+        tokens = corpus.write(sentencesFile, tagsFile, 2000, 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCorpus() throws IOException {
+        Files.deleteIfExists(sentencesFile);
+        Files.deleteIfExists(tagsFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Object viterbi(Tokens counter) throws IOException {
+        counter.tokens += tokens;
+        if (parallelism == 0) {
+            return sudi.viterbi(sentencesFile.toString());
+        }
+        return sudi.viterbi(sentencesFile.toString(), parallelism);
+    }
+
+    @Benchmark
+    public String findAccuracy(Tokens counter) throws IOException {
+        counter.tokens += tokens;
+        return sudi.findAccuracy(sentencesFile.toString(), tagsFile.toString(), false, Math.max(1, parallelism));
+    }
+}
@@ -0,0 +1,73 @@
+package postagger.benchmarks;
+
+import postagger.CompactLexicon;
+import postagger.CompiledModel;
+import postagger.Sudi;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that compacting a model changes nothing it tags. A model is trained on a synthetic corpus with a long-tailed
+ * vocabulary and compacted at every precision; every compact model must find every word of the dense one, and tag
+ * every test sentence, unknown words included, exactly as the dense model does. The process exits with status 1
+ * otherwise.
+ *
+ * Usage: CompactLexiconCheck [tags] [words per tag] [training sentences] [test sentences]
+ **/
+
+public final class CompactLexiconCheck {
+    private CompactLexiconCheck() {}
+
+    public static void main(String[] args) throws Exception {
+        int numTags = args.length > 0 ? Integer.parseInt(args[0]) : 45;
+        int wordsPerTag = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int trainingSentences = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+        int testSentences = args.length > 3 ? Integer.parseInt(args[3]) : 5000;
+
+        SyntheticCorpus corpus = new SyntheticCorpus(numTags, 200_000, wordsPerTag, 42);
+        Path directory = Files.createTempDirectory("sudi-compact");
+        Path sentencesFile = directory.resolve("sentences.txt");
+        Path tagsFile = directory.resolve("tags.txt");
+        corpus.write(sentencesFile, tagsFile, trainingSentences, 20);
+        CompiledModel dense = new Sudi(sentencesFile.toString(), tagsFile.toString()).compile();
+        Files.delete(sentencesFile);
+        Files.delete(tagsFile);
+        Files.delete(directory);
+        List<String[]> test = new ArrayList<>();
+        List<ArrayList<String>> denseTags = new ArrayList<>();
+        for (int i = 0; i < testSentences; i++) {
+            test.add(corpus.sentence(5 + i % 30)[0]);
+            denseTags.add(dense.tag(test.get(i)));
+        }
+
+        int failures = 0;
+        for (CompactLexicon.Precision precision : CompactLexicon.Precision.values()) {
+            CompiledModel compact = dense.compact(precision);
+            int missingWords = 0;
+            for (int word = 0; word < dense.vocabularySize(); word++) {
+                String text = dense.lexicon().word(word);
+                int compactId = compact.wordId(text);
+                if (compactId == CompiledModel.UNKNOWN_WORD || !compact.lexicon().word(compactId).equals(text)) {
+                    missingWords++;
+                }
+            }
+            int differing = 0;
+            for (int i = 0; i < test.size(); i++) {
+                if (!compact.tag(test.get(i)).equals(denseTags.get(i))) {
+                    differing++;
+                }
+            }
+            System.out.println("compact " + precision + ": " + missingWords + " of " + dense.vocabularySize()
+                    + " words not found, " + differing + " of " + test.size() + " sentences tagged differently");
+            if (missingWords > 0 || differing > 0) {
+                failures++;
+            }
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package postagger.benchmarks;
+
+import postagger.Decoder;
+import postagger.Sudi;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress test for sharing one Sudi across threads. Decoding threads keep taking fresh Decoder handles and tagging a
+ * fixed set of sentences, with both the maps and the compiled model, while another thread keeps retraining the same
+ * Sudi, alternating between two corpora. Every handle must produce exactly the output of one of the two models, never
+ * a mix; the process exits with status 1 otherwise.
+ *
+ * Usage: ConcurrencyStress [decoding threads] [seconds]
+ **/
+
+public final class ConcurrencyStress {
+    private static final int SAMPLE_SENTENCES = 200;
+
+    private ConcurrencyStress() {}
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Path directory = Files.createTempDirectory("sudi-stress");
+        Path[] corpusA = writeCorpus(directory, "a", 1);
+        Path[] corpusB = writeCorpus(directory, "b", 2);
+        SyntheticCorpus sampleCorpus = new SyntheticCorpus(45, 5000, 3);
+        List<String[]> sample = new ArrayList<>();
+        for (int i = 0; i < SAMPLE_SENTENCES; i++) {
+            sample.add(sampleCorpus.sentence(5 + i % 40)[0]);
+        }
+
+        // reference output of each model, decoded on one thread
+        Sudi sudi = new Sudi(corpusA[0].toString(), corpusA[1].toString());
+        List<ArrayList<String>> expectedA = tagAll(sudi.decoder(), sample, false);
+        sudi.trainSudi(corpusB[0].toString(), corpusB[1].toString());
+        List<ArrayList<String>> expectedB = tagAll(sudi.decoder(), sample, false);
+        if (expectedA.equals(expectedB)) {
+            System.out.println("Both models tag the sample the same way; the test would not notice a mix");
+            System.exit(1);
+        }
+
+        AtomicLong handles = new AtomicLong();
+        AtomicLong retrains = new AtomicLong();
+        ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        List<Future<?>> running = new ArrayList<>();
+
+        // retrain back and forth, with both the sequential and the parallel trainer
+        running.add(pool.submit(() -> {
+            while (System.nanoTime() < deadline) {
+                Path[] corpus = retrains.get() % 2 == 0 ? corpusA : corpusB;
+                if (retrains.get() % 4 < 2) {
+                    sudi.trainSudi(corpus[0].toString(), corpus[1].toString());
+                }
+                else {
+                    sudi.trainSudi(corpus[0].toString(), corpus[1].toString(), 2);
+                }
+                retrains.incrementAndGet();
+            }
+            return null;
+        }));
+        for (int t = 0; t < threads; t++) {
+            boolean compiled = t % 2 == 1;
+            running.add(pool.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    Decoder decoder = sudi.decoder();
+                    List<ArrayList<String>> output = tagAll(decoder, sample, compiled);
+                    if (!output.equals(expectedA) && !output.equals(expectedB)) {
+                        failures.add((compiled ? "compiled" : "map") + " handle mixed two models");
+                    }
+                    handles.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : running) {
+            future.get();
+        }
+        pool.shutdown();
+        for (Path[] corpus : new Path[][] {corpusA, corpusB}) {
+            Files.delete(corpus[0]);
+            Files.delete(corpus[1]);
+        }
+        Files.delete(directory);
+
+        System.out.println(threads + " decoding threads, " + seconds + " s: " + handles.get() + " handles checked, "
+                + retrains.get() + " retrains, " + failures.size() + " failures");
+        if (!failures.isEmpty()) {
+            System.out.println(failures.peek());
+            System.exit(1);
+        }
+    }
+
+    private static Path[] writeCorpus(Path directory, String name, long seed) throws IOException {
+        Path sentences = directory.resolve(name + "-sentences.txt");
+        Path tags = directory.resolve(name + "-tags.txt");
+        new SyntheticCorpus(45, 5000, seed).write(sentences, tags, 2000, 20);
+        return new Path[] {sentences, tags};
+    }
+
+    private static List<ArrayList<String>> tagAll(Decoder decoder, List<String[]> sentences, boolean compiled) {
+        List<ArrayList<String>> output = new ArrayList<>();
+        for (String[] sentence : sentences) {
+            output.add(compiled ? decoder.tag(sentence) : decoder.viterbiHelper(sentence));
+        }
+        return output;
+    }
+}
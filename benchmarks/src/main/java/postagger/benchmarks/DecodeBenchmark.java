@@ -0,0 +1,78 @@
+package postagger.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import postagger.CompiledModel;
+import postagger.Sudi;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of decoding one sentence, by sentence length and tagset size, with the map-based viterbiHelper
+ * and with the compiled model.
+ **/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+    private static final int SENTENCES = 64;
+
+    @Param({"12", "45", "87", "200"})
+    public int numTags;
+
+    @Param({"5", "20", "50"})
+    public int sentenceLength;
+
+    private Sudi sudi;
+    private CompiledModel model;
+    private String[][] sentences;
+    private int[][] encoded;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void train() throws IOException {
+        SyntheticCorpus corpus = new SyntheticCorpus(numTags, 20000, 42);
+        Path directory = Files.createTempDirectory("sudi-decode");
+        Path sentencesFile = directory.resolve("train-sentences.txt");
+        Path tagsFile = directory.resolve("train-tags.txt");
+        corpus.write(sentencesFile, tagsFile, 20000, 20);
+        sudi = new Sudi(sentencesFile.toString(), tagsFile.toString());
+        model = sudi.compile();
+        Files.delete(sentencesFile);
+        Files.delete(tagsFile);
+        Files.delete(directory);
+
+        sentences = new String[SENTENCES][];
+        encoded = new int[SENTENCES][];
+        for (int i = 0; i < SENTENCES; i++) {
+            sentences[i] = corpus.sentence(sentenceLength)[0];
+            encoded[i] = model.encode(sentences[i]);
+        }
+    }
+
+    private int nextSentence() {
+        next = (next + 1) % SENTENCES;
+        return next;
+    }
+
+    @Benchmark
+    public Object viterbiHelper() {
+        return sudi.viterbiHelper(sentences[nextSentence()]);
+    }
+
+    @Benchmark
+    public Object compiledDecode() {
+        return model.decode(encoded[nextSentence()]);
+    }
+
+    @Benchmark
+    public Object compiledTag() {
+        return model.tag(sentences[nextSentence()]);
+    }
+}
@@ -0,0 +1,171 @@
+package postagger.benchmarks;
+
+import postagger.CompactLexicon;
+import postagger.CompiledModel;
+import postagger.ModelSnapshot;
+import postagger.Sudi;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the ways a trained model can hold its emissions, on a synthetic corpus with a large, long-tailed
+ * vocabulary: the trained Map<POS, Map<word, log-prob>> maps, the dense compiled lexicon, and CompactLexicon at each
+ * precision. For each it prints the retained heap measured after a full GC, the time to look up one word's
+ * emissions, and tagging accuracy on held-out sentences, with agreement against the dense model.
+ *
+ * Usage: LexiconFootprint [tags] [words per tag] [training sentences]
+ **/
+
+public final class LexiconFootprint {
+    private static final int TEST_SENTENCES = 5000;
+    private static final int LOOKUP_ROUNDS = 5;
+
+    private LexiconFootprint() {}
+
+    public static void main(String[] args) throws Exception {
+        int numTags = args.length > 0 ? Integer.parseInt(args[0]) : 45;
+        int wordsPerTag = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int trainingSentences = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+
+        SyntheticCorpus corpus = new SyntheticCorpus(numTags, 1_000_000, wordsPerTag, 42);
+        Path directory = Files.createTempDirectory("sudi-lexicon");
+        Path sentencesFile = directory.resolve("train-sentences.txt");
+        Path tagsFile = directory.resolve("train-tags.txt");
+        corpus.write(sentencesFile, tagsFile, trainingSentences, 20);
+        List<String[][]> test = new ArrayList<>();
+        for (int i = 0; i < TEST_SENTENCES; i++) {
+            test.add(corpus.sentence(5 + i % 30));
+        }
+
+        long baseline = usedHeap();
+        Sudi sudi = new Sudi(sentencesFile.toString(), tagsFile.toString());
+        long mapBytes = usedHeap() - baseline;
+        Files.delete(sentencesFile);
+        Files.delete(tagsFile);
+        Files.delete(directory);
+
+        ModelSnapshot snapshot = sudi.snapshot();
+        baseline = usedHeap();
+        CompiledModel dense = CompiledModel.compile(snapshot.observationMap(), snapshot.transitionMap());
+        long denseBytes = usedHeap() - baseline;
+
+        System.out.printf("%d tags, %,d words, %,d training sentences%n", numTags, dense.vocabularySize(),
+                trainingSentences);
+        System.out.printf("%-16s %14s %14s %14s %10s %10s%n", "emissions", "retained heap", "estimated",
+                "ns/lookup", "agreement", "accuracy");
+        int[][] denseTags = decodeAll(dense, test);
+        System.out.printf("%-16s %,14d %14s %14.1f %10s %10s%n", "maps", mapBytes, "", mapLookupNanos(snapshot, test),
+                "", "");
+        report("dense", dense, denseBytes, test, denseTags);
+        List<CompiledModel> compacts = new ArrayList<>(); // all kept alive, so each measurement only adds one
+        for (CompactLexicon.Precision precision : CompactLexicon.Precision.values()) {
+            baseline = usedHeap();
+            compacts.add(dense.compact(precision));
+            long compactBytes = usedHeap() - baseline;
+            report("compact " + precision, compacts.get(compacts.size() - 1), compactBytes, test, denseTags);
+        }
+    }
+
+    private static void report(String name, CompiledModel model, long retained, List<String[][]> test,
+                               int[][] denseTags) {
+        int[][] decoded = decodeAll(model, test);
+        long agree = 0;
+        long correct = 0;
+        long total = 0;
+        for (int s = 0; s < decoded.length; s++) {
+            String[] gold = test.get(s)[1];
+            for (int i = 0; i < gold.length; i++) {
+                if (model.tag(decoded[s][i]).equals(gold[i])) {
+                    correct++;
+                }
+                if (model.tag(decoded[s][i]).equals(model.tag(denseTags[s][i]))) {
+                    agree++;
+                }
+                total++;
+            }
+        }
+        System.out.printf("%-16s %,14d %,14d %14.1f %9.3f%% %9.3f%%%n", name, retained,
+                model.lexicon().heapBytes(), lookupNanos(model, test), 100.0 * agree / total, 100.0 * correct / total);
+    }
+
+    /**
+     * tags every test sentence, as tag IDs of the model; the tags are the same tags in every compiled model
+     */
+    private static int[][] decodeAll(CompiledModel model, List<String[][]> test) {
+        int[][] decoded = new int[test.size()][];
+        for (int s = 0; s < decoded.length; s++) {
+            decoded[s] = model.decode(model.encode(test.get(s)[0]));
+        }
+        return decoded;
+    }
+
+    /**
+     * times wordId and a full emission column for every test word, as the compiled decoder needs them
+     */
+    private static double lookupNanos(CompiledModel model, List<String[][]> test) {
+        double[] buffer = new double[model.numTags()];
+        double sink = 0;
+        long lookups = 0;
+        long started = 0;
+        for (int round = 0; round <= LOOKUP_ROUNDS; round++) {
+            if (round == 1) {
+                started = System.nanoTime(); // the first round warms up
+                lookups = 0;
+            }
+            for (String[][] sentence : test) {
+                for (String word : sentence[0]) {
+                    int wordId = model.wordId(word);
+                    if (wordId != CompiledModel.UNKNOWN_WORD) {
+                        sink += model.lexicon().column(wordId, buffer)[0];
+                    }
+                    lookups++;
+                }
+            }
+        }
+        double nanos = (double) (System.nanoTime() - started) / lookups;
+        return sink == 1 ? -nanos : nanos; // keeps the lookups from being optimized away
+    }
+
+    /**
+     * times the per-state lookups viterbiHelper makes: every state's map asked for the word
+     */
+    private static double mapLookupNanos(ModelSnapshot snapshot, List<String[][]> test) {
+        Map<String, Map<String, Double>> observationMap = snapshot.observationMap();
+        double sink = 0;
+        long lookups = 0;
+        long started = 0;
+        for (int round = 0; round <= LOOKUP_ROUNDS; round++) {
+            if (round == 1) {
+                started = System.nanoTime();
+                lookups = 0;
+            }
+            for (String[][] sentence : test) {
+                for (String word : sentence[0]) {
+                    for (Map<String, Double> emissions : observationMap.values()) {
+                        Double logProb = emissions.get(word);
+                        if (logProb != null) {
+                            sink += logProb;
+                        }
+                    }
+                    lookups++;
+                }
+            }
+        }
+        double nanos = (double) (System.nanoTime() - started) / lookups;
+        return sink == 1 ? -nanos : nanos;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
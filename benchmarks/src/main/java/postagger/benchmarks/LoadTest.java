@@ -0,0 +1,131 @@
+package postagger.benchmarks;
+
+import postagger.CompiledModel;
+import postagger.LatencyWindow;
+import postagger.Sudi;
+import postagger.TaggingServer;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load test for TaggingServer: each client thread posts a request, waits for the answer and posts the
+ * next one. Prints client-side p50/p99 latency and throughput, then the server's own /stats.
+ *
+ * Without a URL it starts a server on localhost with a model trained on a synthetic corpus, so it needs no data.
+ *
+ * Usage: LoadTest [clients] [seconds] [sentences per request] [url of a running server, e.g. http://localhost:8080]
+ **/
+
+public final class LoadTest {
+    private static final int BODIES = 1000;
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int sentencesPerRequest = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        SyntheticCorpus corpus = new SyntheticCorpus(45, 20000, 42);
+        TaggingServer local = null;
+        String url;
+        if (args.length > 3) {
+            url = args[3];
+        }
+        else {
+            local = new TaggingServer(train(corpus), new InetSocketAddress("localhost", 0),
+                    Runtime.getRuntime().availableProcessors());
+            local.start();
+            url = "http://localhost:" + local.address().getPort();
+        }
+
+        // request bodies of short sentences, like labels and queries
+        Random random = new Random(7);
+        List<String> bodies = new ArrayList<>();
+        List<Integer> bodyTokens = new ArrayList<>();
+        for (int i = 0; i < BODIES; i++) {
+            StringBuilder body = new StringBuilder();
+            int bodyLength = 0;
+            for (int s = 0; s < sentencesPerRequest; s++) {
+                String[] words = corpus.sentence(3 + random.nextInt(15))[0];
+                body.append(String.join(" ", words)).append('\n');
+                bodyLength += words.length;
+            }
+            bodies.add(body.toString());
+            bodyTokens.add(bodyLength);
+        }
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(); // no h2c upgrade
+        URI tagUri = URI.create(url + "/tag");
+        LatencyWindow latency = new LatencyWindow(1 << 16);
+        AtomicLong tokens = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<?>> running = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            int first = c;
+            running.add(pool.submit(() -> {
+                for (int i = first; System.nanoTime() < deadline; i += clients) {
+                    int body = i % BODIES;
+                    HttpRequest request = HttpRequest.newBuilder(tagUri)
+                            .POST(HttpRequest.BodyPublishers.ofString(bodies.get(body))).build();
+                    long sent = System.nanoTime();
+                    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                    latency.record(System.nanoTime() - sent);
+                    if (response.statusCode() == 200) {
+                        tokens.addAndGet(bodyTokens.get(body));
+                    }
+                    else {
+                        failures.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : running) {
+            future.get();
+        }
+        double elapsed = (System.nanoTime() - started) / 1e9;
+        pool.shutdown();
+
+        long[] percentiles = latency.percentiles(50, 99);
+        System.out.printf("%d clients, %d sentences per request, %.1f s%n", clients, sentencesPerRequest, elapsed);
+        System.out.printf("client: %.0f requests/sec, %.0f tokens/sec, p50 %.3f ms, p99 %.3f ms, %d failures%n",
+                latency.count() / elapsed, tokens.get() / elapsed, percentiles[0] / 1e6, percentiles[1] / 1e6,
+                failures.get());
+        HttpResponse<String> stats = client.send(HttpRequest.newBuilder(URI.create(url + "/stats")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        System.out.println("server:\n" + stats.body());
+        if (local != null) {
+            local.close();
+        }
+    }
+
+    /**
+     * trains Sudi on a synthetic corpus, the same way the other benchmarks do
+     */
+    private static CompiledModel train(SyntheticCorpus corpus) throws Exception {
+        Path directory = Files.createTempDirectory("sudi-load");
+        Path sentences = directory.resolve("train-sentences.txt");
+        Path tags = directory.resolve("train-tags.txt");
+        corpus.write(sentences, tags, 20000, 20);
+        Sudi sudi = new Sudi(sentences.toString(), tags.toString());
+        Files.delete(sentences);
+        Files.delete(tags);
+        Files.delete(directory);
+        return sudi.compile();
+    }
+}
@@ -0,0 +1,112 @@
+package postagger.benchmarks;
+
+import postagger.CompiledModel;
+import postagger.OnlineModel;
+import postagger.Sudi;
+import postagger.TrainingCounts;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that an OnlineModel tags exactly like a Sudi trained on the same lines. A small synthetic corpus leaves many
+ * test words unseen, so scores often tie and the two only agree if they give their tags the same IDs. Then more
+ * sentences are folded into the live model over many updates, which must tag like a Sudi and a live model trained on
+ * all the lines at once. The process exits with status 1 on any difference.
+ *
+ * Usage: OnlineModelCheck [training sentences] [test sentences] [update sentences] [updates]
+ **/
+
+public final class OnlineModelCheck {
+    private OnlineModelCheck() {}
+
+    public static void main(String[] args) throws Exception {
+        int trainingSentences = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int testSentences = args.length > 1 ? Integer.parseInt(args[1]) : 1500;
+        int updateSentences = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        int updates = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+        SyntheticCorpus corpus = new SyntheticCorpus(45, 20000, 7);
+        Path directory = Files.createTempDirectory("sudi-online");
+        Path sentencesFile = directory.resolve("sentences.txt");
+        Path tagsFile = directory.resolve("tags.txt");
+        Path newSentencesFile = directory.resolve("new-sentences.txt");
+        Path newTagsFile = directory.resolve("new-tags.txt");
+        Path allSentencesFile = directory.resolve("all-sentences.txt");
+        Path allTagsFile = directory.resolve("all-tags.txt");
+        corpus.write(sentencesFile, tagsFile, trainingSentences, 15);
+        corpus.write(newSentencesFile, newTagsFile, updateSentences, 15);
+        concatenate(sentencesFile, newSentencesFile, allSentencesFile);
+        concatenate(tagsFile, newTagsFile, allTagsFile);
+        List<String[]> test = new ArrayList<>();
+        for (int i = 0; i < testSentences; i++) {
+            test.add(corpus.sentence(5 + i % 30)[0]);
+        }
+
+        // both ways Sudi trains, and the live model from both ways of counting
+        Sudi mapTrained = new Sudi(sentencesFile.toString(), tagsFile.toString());
+        Sudi countTrained = new Sudi();
+        countTrained.trainSudi(sentencesFile.toString(), tagsFile.toString(), 1);
+        OnlineModel parallelCounted = OnlineModel.train(sentencesFile.toString(), tagsFile.toString(), 4);
+        OnlineModel counted = new OnlineModel(TrainingCounts.count(sentencesFile, tagsFile));
+
+        int failures = 0;
+        failures += compare("trainSudi", mapTrained.compile(), "ParallelTrainer", parallelCounted.snapshot(), test);
+        failures += compare("trainSudi", mapTrained.compile(), "TrainingCounts", counted.snapshot(), test);
+        failures += compare("counted trainSudi", countTrained.compile(), "TrainingCounts", counted.snapshot(), test);
+
+        // fold the new sentences into the first live model, a batch per update
+        List<String> newSentences = Files.readAllLines(newSentencesFile);
+        List<String> newTags = Files.readAllLines(newTagsFile);
+        for (int update = 0; update < updates; update++) {
+            List<String[]> sentences = new ArrayList<>();
+            List<String[]> sentenceTags = new ArrayList<>();
+            for (int i = update * newSentences.size() / updates; i < (update + 1) * newSentences.size() / updates;
+                 i++) {
+                sentences.add(newSentences.get(i).split(" "));
+                sentenceTags.add(newTags.get(i).split(" "));
+            }
+            parallelCounted.update(sentences, sentenceTags);
+        }
+        mapTrained.trainSudi(allSentencesFile.toString(), allTagsFile.toString());
+        OnlineModel allCounted = new OnlineModel(TrainingCounts.count(allSentencesFile, allTagsFile));
+        String updated = "updated (" + updateSentences + " sentences over " + updates + " updates)";
+        failures += compare("trainSudi on all lines", mapTrained.compile(), updated, parallelCounted.snapshot(), test);
+        failures += compare("live model of all lines", allCounted.snapshot(), updated, parallelCounted.snapshot(),
+                test);
+
+        for (Path file : new Path[] {sentencesFile, tagsFile, newSentencesFile, newTagsFile, allSentencesFile,
+                allTagsFile}) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void concatenate(Path first, Path second, Path target) throws IOException {
+        List<String> lines = new ArrayList<>(Files.readAllLines(first));
+        lines.addAll(Files.readAllLines(second));
+        Files.write(target, lines);
+    }
+
+    /**
+     * @return 1 if the models tag any test sentence differently, 0 otherwise
+     */
+    static int compare(String expectedName, CompiledModel expected, String actualName, CompiledModel actual,
+                       List<String[]> test) {
+        int differing = 0;
+        for (String[] sentence : test) {
+            if (!expected.tag(sentence).equals(actual.tag(sentence))) {
+                differing++;
+            }
+        }
+        System.out.println(actualName + " live model against " + expectedName + ": " + differing + " of "
+                + test.size() + " sentences tagged differently");
+        return differing == 0 ? 0 : 1;
+    }
+}
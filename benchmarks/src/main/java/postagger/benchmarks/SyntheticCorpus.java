@@ -0,0 +1,130 @@
+package postagger.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Stands in for the Brown files, which are not shipped. Sentences are sampled from a random HMM: every tag has a
+ * handful of likely successors and emits words from its own Zipf-distributed slice of the vocabulary, with slices
+ * overlapping so that words are ambiguous. A fixed seed gives the same corpus on every run.
+ **/
+
+public final class SyntheticCorpus {
+    private static final int SUCCESSORS_PER_TAG = 12;
+    private static final int WORDS_PER_TAG = 400;
+    // share of sampled words replaced by words no tag ever emits, to exercise the unseen-word penalty
+    private static final double UNKNOWN_RATE = 0.03;
+
+    private final int numTags;
+    private final int vocabularySize;
+    private final Random random;
+    private final int[][] successors; // successors[tag + 1]: likely next tags, index 0 is the # start state
+    private final int[][] emittedWords; // emittedWords[tag]: words the tag emits, most frequent first
+    private final double[][] emissionCumulative; // cumulative Zipf weights over emittedWords[tag]
+
+    /**
+     * @param numTags number of tags
+     * @param vocabularySize number of distinct known words
+     * @param seed random seed
+     */
+    public SyntheticCorpus(int numTags, int vocabularySize, long seed) {
+        this(numTags, vocabularySize, WORDS_PER_TAG, seed);
+    }
+
+    /**
+     * @param numTags number of tags
+     * @param vocabularySize number of distinct known words
+     * @param wordsPerTag number of words each tag emits; large values give long-tailed, mostly rare vocabularies
+     * @param seed random seed
+     */
+    public SyntheticCorpus(int numTags, int vocabularySize, int wordsPerTag, long seed) {
+        this.numTags = numTags;
+        this.vocabularySize = vocabularySize;
+        this.random = new Random(seed);
+        this.successors = new int[numTags + 1][];
+        for (int from = 0; from <= numTags; from++) {
+            successors[from] = new int[Math.min(numTags, SUCCESSORS_PER_TAG)];
+            for (int i = 0; i < successors[from].length; i++) {
+                successors[from][i] = random.nextInt(numTags);
+            }
+        }
+        this.emittedWords = new int[numTags][];
+        this.emissionCumulative = new double[numTags][];
+        for (int tag = 0; tag < numTags; tag++) {
+            int count = Math.min(vocabularySize, wordsPerTag);
+            emittedWords[tag] = new int[count];
+            emissionCumulative[tag] = new double[count];
+            double sum = 0;
+            for (int i = 0; i < count; i++) {
+                emittedWords[tag][i] = random.nextInt(vocabularySize);
+                sum += 1.0 / (i + 1);
+                emissionCumulative[tag][i] = sum;
+            }
+        }
+    }
+
+    /**
+     * @return the number of tags sentences are sampled from
+     */
+    public int numTags() {
+        return numTags;
+    }
+
+    /**
+     * samples one sentence
+     * @param length number of words
+     * @return two arrays of the given length: words, then their tags
+     */
+    public String[][] sentence(int length) {
+        String[] words = new String[length];
+        String[] tags = new String[length];
+        int previous = -1;
+        for (int i = 0; i < length; i++) {
+            int[] next = successors[previous + 1];
+            int tag = next[random.nextInt(next.length)];
+            tags[i] = "t" + tag;
+            words[i] = "w" + sampleWord(tag);
+            previous = tag;
+        }
+        return new String[][] {words, tags};
+    }
+
+    /**
+     * samples sentences of varying length into a words file and a matching tags file, one sentence per line
+     * @param sentencesFile file to write the words to
+     * @param tagsFile file to write the tags to
+     * @param numSentences number of sentences
+     * @param meanLength average number of words per sentence
+     * @return total number of words written
+     * @throws IOException if either file cannot be written
+     */
+    public long write(Path sentencesFile, Path tagsFile, int numSentences, int meanLength) throws IOException {
+        long tokens = 0;
+        try (BufferedWriter words = Files.newBufferedWriter(sentencesFile, StandardCharsets.UTF_8);
+             BufferedWriter tags = Files.newBufferedWriter(tagsFile, StandardCharsets.UTF_8)) {
+            for (int s = 0; s < numSentences; s++) {
+                int length = 1 + random.nextInt(2 * meanLength - 1);
+                String[][] sentence = sentence(length);
+                words.write(String.join(" ", sentence[0]));
+                words.write('\n');
+                tags.write(String.join(" ", sentence[1]));
+                tags.write('\n');
+                tokens += length;
+            }
+        }
+        return tokens;
+    }
+
+    private int sampleWord(int tag) {
+        if (random.nextDouble() < UNKNOWN_RATE) {
+            return vocabularySize + random.nextInt(vocabularySize);
+        }
+        double[] cumulative = emissionCumulative[tag];
+        int index = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[cumulative.length - 1]);
+        return emittedWords[tag][index < 0 ? -index - 1 : index];
+    }
+}
@@ -0,0 +1,72 @@
+package postagger.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import postagger.Sudi;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures trainSudi, single-threaded and parallel, on a synthetic corpus. The "tokens" counter is reported as training throughput in tokens/sec.
+ **/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrainingBenchmark {
+    @Param({"45", "87"})
+    public int numTags;
+
+    @Param({"20000"})
+    public int numSentences;
+
+    private Path directory;
+    private Path sentencesFile;
+    private Path tagsFile;
+    private long tokens;
+
+    /**
+     * counts the tokens trained on, so JMH reports them per second next to trainings per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Tokens {
+        public long tokens;
+    }
+
+    @Setup(Level.Trial)
+    public void writeCorpus() throws IOException {
+        directory = Files.createTempDirectory("sudi-training");
+        sentencesFile = directory.resolve("train-sentences.txt");
+        tagsFile = directory.resolve("train-tags.txt");
+        tokens = new SyntheticCorpus(numTags, 20000, 42).write(sentencesFile, tagsFile, numSentences, 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteCorpus() throws IOException {
+        Files.deleteIfExists(sentencesFile);
+        Files.deleteIfExists(tagsFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public Sudi trainSudi(Tokens counter) throws IOException {
+        Sudi sudi = new Sudi();
+        sudi.trainSudi(sentencesFile.toString(), tagsFile.toString());
+        counter.tokens += tokens;
+        return sudi;
+    }
+
+    @Benchmark
+    public Sudi parallelTrainSudi(Tokens counter) throws IOException {
+        Sudi sudi = new Sudi();
+        sudi.trainSudi(sentencesFile.toString(), tagsFile.toString(), Runtime.getRuntime().availableProcessors());
+        counter.tokens += tokens;
+        return sudi;
+    }
+}
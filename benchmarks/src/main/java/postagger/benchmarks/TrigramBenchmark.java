@@ -0,0 +1,86 @@
+package postagger.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import postagger.CompiledModel;
+import postagger.Sudi;
+import postagger.TrigramModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding throughput of the second-order TrigramModel against the first-order map-based viterbiHelper and
+ * compiled decoder, all trained on the same synthetic corpus. Scores are sentences per second.
+ **/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrigramBenchmark {
+    private static final int SENTENCES = 64;
+
+    @Param({"12", "45", "87"})
+    public int numTags;
+
+    @Param({"5", "20", "50"})
+    public int sentenceLength;
+
+    private Sudi sudi;
+    private CompiledModel model;
+    private TrigramModel trigrams;
+    private String[][] sentences;
+    private int[][] encoded;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void train() throws IOException {
+        SyntheticCorpus corpus = new SyntheticCorpus(numTags, 20000, 42);
+        Path directory = Files.createTempDirectory("sudi-trigram");
+        Path sentencesFile = directory.resolve("train-sentences.txt");
+        Path tagsFile = directory.resolve("train-tags.txt");
+        corpus.write(sentencesFile, tagsFile, 20000, 20);
+        sudi = new Sudi(sentencesFile.toString(), tagsFile.toString());
+        model = sudi.compile();
+        trigrams = TrigramModel.train(sentencesFile, tagsFile);
+        Files.delete(sentencesFile);
+        Files.delete(tagsFile);
+        Files.delete(directory);
+
+        sentences = new String[SENTENCES][];
+        encoded = new int[SENTENCES][];
+        for (int i = 0; i < SENTENCES; i++) {
+            sentences[i] = corpus.sentence(sentenceLength)[0];
+            encoded[i] = trigrams.firstOrder().encode(sentences[i]);
+        }
+    }
+
+    private int nextSentence() {
+        next = (next + 1) % SENTENCES;
+        return next;
+    }
+
+    @Benchmark
+    public Object viterbiHelper() {
+        return sudi.viterbiHelper(sentences[nextSentence()]);
+    }
+
+    @Benchmark
+    public Object compiledTag() {
+        return model.tag(sentences[nextSentence()]);
+    }
+
+    @Benchmark
+    public Object trigramTag() {
+        return trigrams.tag(sentences[nextSentence()]);
+    }
+
+    @Benchmark
+    public Object trigramDecode() {
+        return trigrams.decode(encoded[nextSentence()]);
+    }
+}
@@ -0,0 +1,75 @@
+package postagger.benchmarks;
+
+import postagger.TrigramModel;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Checks that second-order decoding is optimal. A TrigramModel is trained on a synthetic corpus with a small tagset,
+ * and for every test sentence every possible tagging is scored; the decoded tagging must score as high as the best of
+ * them, and no tagging may be possible when the decoder finds none. The process exits with status 1 otherwise.
+ *
+ * Usage: TrigramCheck [tags] [test sentences] [longest sentence]
+ **/
+
+public final class TrigramCheck {
+    private TrigramCheck() {}
+
+    public static void main(String[] args) throws Exception {
+        int numTags = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int testSentences = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int longest = args.length > 2 ? Integer.parseInt(args[2]) : 7;
+
+        SyntheticCorpus corpus = new SyntheticCorpus(numTags, 500, 5);
+        Path directory = Files.createTempDirectory("sudi-trigram-check");
+        Path sentencesFile = directory.resolve("sentences.txt");
+        Path tagsFile = directory.resolve("tags.txt");
+        corpus.write(sentencesFile, tagsFile, 2000, 10);
+        TrigramModel model = TrigramModel.train(sentencesFile, tagsFile);
+        Files.delete(sentencesFile);
+        Files.delete(tagsFile);
+        Files.delete(directory);
+
+        int tags = model.firstOrder().numTags();
+        int mismatches = 0;
+        long taggings = 0;
+        for (int s = 0; s < testSentences; s++) {
+            int[] wordIds = model.firstOrder().encode(corpus.sentence(1 + s % longest)[0]);
+            int[] decoded = model.decode(wordIds);
+
+            // count through every tagging like an odometer over tag IDs
+            int[] tagging = new int[wordIds.length];
+            double best = Double.NEGATIVE_INFINITY;
+            do {
+                best = Math.max(best, model.score(wordIds, tagging));
+                taggings++;
+            } while (advance(tagging, tags));
+
+            boolean optimal = best == Double.NEGATIVE_INFINITY
+                    ? decoded[0] == -1
+                    : decoded[0] != -1 && model.score(wordIds, decoded) == best;
+            if (!optimal) {
+                mismatches++;
+            }
+        }
+        System.out.println(tags + " tags, " + testSentences + " sentences of up to " + longest + " words, " + taggings
+                + " taggings scored: " + mismatches + " decoded taggings below the best");
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return false once every tagging has been visited
+     */
+    private static boolean advance(int[] tagging, int tags) {
+        for (int i = tagging.length - 1; i >= 0; i--) {
+            if (++tagging[i] < tags) {
+                return true;
+            }
+            tagging[i] = 0;
+        }
+        return false;
+    }
+}
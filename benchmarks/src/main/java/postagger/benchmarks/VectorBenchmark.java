@@ -0,0 +1,64 @@
+package postagger.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import postagger.CompiledModel;
+import postagger.MaxPlus;
+import postagger.Sudi;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures exact compiled decoding with the scalar and the vector MaxPlus kernel, by tagset size. The forked JVM is
+ * started with --add-modules jdk.incubator.vector, so both kernels can run; setup fails if the vector one cannot.
+ **/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class VectorBenchmark {
+    private static final int SENTENCES = 64;
+
+    @Param({"45", "87", "200", "500"})
+    public int numTags;
+
+    @Param({"20"})
+    public int sentenceLength;
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    private CompiledModel model;
+    private int[][] encoded;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void train() throws IOException {
+        MaxPlus.useVector(kernel.equals("vector"));
+        SyntheticCorpus corpus = new SyntheticCorpus(numTags, 20000, 42);
+        Path directory = Files.createTempDirectory("sudi-vector");
+        Path sentencesFile = directory.resolve("train-sentences.txt");
+        Path tagsFile = directory.resolve("train-tags.txt");
+        corpus.write(sentencesFile, tagsFile, 20000, 20);
+        model = new Sudi(sentencesFile.toString(), tagsFile.toString()).compile();
+        Files.delete(sentencesFile);
+        Files.delete(tagsFile);
+        Files.delete(directory);
+
+        encoded = new int[SENTENCES][];
+        for (int i = 0; i < SENTENCES; i++) {
+            encoded[i] = model.encode(corpus.sentence(sentenceLength)[0]);
+        }
+    }
+
+    @Benchmark
+    public Object decode() {
+        next = (next + 1) % SENTENCES;
+        return model.decode(encoded[next]);
+    }
+}
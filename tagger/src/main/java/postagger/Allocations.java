@@ -0,0 +1,48 @@
+package postagger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures heap allocation of the calling thread, through the HotSpot extension of ThreadMXBean.
+ **/
+
+public final class Allocations {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private Allocations() {}
+
+    /**
+     * @return true if the JVM can report per-thread allocation
+     */
+    public static boolean isSupported() {
+        return THREADS instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * @return bytes allocated so far by the calling thread, or -1 if the JVM cannot tell
+     */
+    public static long threadAllocatedBytes() {
+        if (!isSupported()) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * runs a task repeatedly and reports how many bytes each run allocates on average
+     * @param task the work to measure
+     * @param runs how many times to run it
+     * @return average bytes allocated per run, or -1 if the JVM cannot tell
+     */
+    public static double bytesPerRun(Runnable task, int runs) {
+        long before = threadAllocatedBytes();
+        for (int i = 0; i < runs; i++) {
+            task.run();
+        }
+        long after = threadAllocatedBytes();
+        return before < 0 ? -1 : (double) (after - before) / runs;
+    }
+}
@@ -0,0 +1,97 @@
+package postagger;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Tags many sentences at once on a fork-join pool. A trained model is read-only, so every sentence is decoded
+ * independently; ranges of sentences are split into chunks that idle workers steal, and results are written back by
+ * index so output order always matches input order.
+ **/
+
+public final class BatchTagger implements AutoCloseable {
+    // sentences decoded by one task before it stops splitting
+    private static final int DEFAULT_CHUNK_SIZE = 64;
+
+    private final CompiledModel model;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * @param model the compiled model to decode with
+     * @param parallelism number of worker threads
+     */
+    public BatchTagger(CompiledModel model, int parallelism) {
+        this(model, parallelism, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param model the compiled model to decode with
+     * @param parallelism number of worker threads
+     * @param chunkSize sentences decoded by one task before it stops splitting
+     */
+    public BatchTagger(CompiledModel model, int parallelism, int chunkSize) {
+        if (parallelism < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("parallelism and chunkSize must be positive");
+        }
+        this.model = model;
+        this.pool = new ForkJoinPool(parallelism);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return the number of worker threads
+     */
+    public int parallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * tags every sentence in parallel
+     * @param sentences sentences already split into words
+     * @return sequence of tags for every sentence, in the same order as sentences
+     */
+    public ArrayList<ArrayList<String>> tagAll(List<String[]> sentences) {
+        // filled in place; tasks only set their own indexes, and the list never changes size
+        ArrayList<ArrayList<String>> results = new ArrayList<>(Collections.nCopies(sentences.size(), null));
+        pool.invoke(new TagRange(sentences, results, 0, sentences.size()));
+        return results;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * decodes sentences [from, to), splitting in half while the range is bigger than one chunk
+     */
+    private final class TagRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // never serialized; RecursiveAction is Serializable
+
+        private final List<String[]> sentences;
+        private final List<ArrayList<String>> results;
+        private final int from;
+        private final int to;
+
+        TagRange(List<String[]> sentences, List<ArrayList<String>> results, int from, int to) {
+            this.sentences = sentences;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    results.set(i, model.tag(sentences.get(i)));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new TagRange(sentences, results, from, middle), new TagRange(sentences, results, middle, to));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package postagger;
+
+import java.util.Map;
+
+/**
+ * On-heap Lexicon of an OnlineModel snapshot. Words and emission columns sit in fixed-size blocks, so the next snapshot
+ * can share every block an update did not touch and copy only the ones it did. The vocabulary map only ever grows and
+ * is shared by all snapshots; word IDs at or above a snapshot's size belong to later snapshots and count as unknown.
+ **/
+
+final class BlockLexicon implements Lexicon {
+    static final int BLOCK_SHIFT = 10;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT; // words per block
+    static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    private final Map<String, Integer> vocabulary; // word -> word ID, for this and later snapshots
+    private final int size;
+    private final String[][] words; // words[wordId >> BLOCK_SHIFT][wordId & BLOCK_MASK]
+    private final double[][][] emissions; // emissions[wordId >> BLOCK_SHIFT][wordId & BLOCK_MASK][tag]
+
+    /**
+     * @param vocabulary word -> word ID; safe for concurrent reads, and never changed for IDs below size
+     * @param size number of words of this snapshot
+     * @param words blocks of words, enough to hold size words
+     * @param emissions blocks of emission columns, laid out like words
+     */
+    BlockLexicon(Map<String, Integer> vocabulary, int size, String[][] words, double[][][] emissions) {
+        this.vocabulary = vocabulary;
+        this.size = size;
+        this.words = words;
+        this.emissions = emissions;
+    }
+
+    /**
+     * @param size a number of words
+     * @return number of blocks needed to hold them
+     */
+    static int blocks(int size) {
+        return (size + BLOCK_MASK) >>> BLOCK_SHIFT;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int wordId(String word) {
+        Integer id = vocabulary.get(word);
+        return id == null || id >= size ? CompiledModel.UNKNOWN_WORD : id;
+    }
+
+    @Override
+    public String word(int wordId) {
+        return words[wordId >> BLOCK_SHIFT][wordId & BLOCK_MASK];
+    }
+
+    @Override
+    public double[] column(int wordId, double[] buffer) {
+        return emissions[wordId >> BLOCK_SHIFT][wordId & BLOCK_MASK];
+    }
+
+    @Override
+    public long heapBytes() {
+        long bytes = 16L * (words.length + emissions.length);
+        for (int word = 0; word < size; word++) {
+            bytes += Lexicon.stringBytes(word(word)) + 2 * 4 + 16 + 8L * column(word, null).length;
+        }
+        return bytes;
+    }
+
+    @Override
+    public long mappedBytes() {
+        return 0;
+    }
+}
@@ -0,0 +1,123 @@
+package postagger;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+/**
+ * Open-addressing hash table from UTF-8 token bytes to IDs, so tokens can be looked up where they lie in a read buffer.
+ * The first time a token is seen, it is decoded to a String once and handed to a resolver, which gives its ID: a
+ * training vocabulary interns it, a compiled model looks it up. Every later occurrence is found by its bytes alone.
+ * Decoding is strict, like Files.newBufferedReader: malformed UTF-8 fails instead of becoming U+FFFD.
+ **/
+
+final class ByteVocabulary {
+    private final ToIntFunction<String> resolver;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    private byte[] arena = new byte[1 << 12]; // bytes of every token, back to back
+    private int arenaSize;
+    private int[] starts = new int[256]; // entry -> first byte in arena; entry i ends where entry i+1 starts
+    private int[] hashes = new int[256];
+    private int[] ids = new int[256]; // entry -> ID given by the resolver
+    private int size;
+    private int[] table = new int[512]; // entry + 1, 0 for an empty slot
+
+    /**
+     * @param resolver gives the ID of a token the first time it is seen
+     */
+    ByteVocabulary(ToIntFunction<String> resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * @param buffer buffer holding the token
+     * @param start index of its first byte
+     * @param end index after its last byte
+     * @return the ID of the token
+     * @throws CharacterCodingException if the token is new and not valid UTF-8
+     */
+    int id(ByteBuffer buffer, int start, int end) throws CharacterCodingException {
+        int hash = hash(buffer, start, end);
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot] - 1;
+            if (entry < 0) {
+                return add(buffer, start, end, hash, slot);
+            }
+            if (hashes[entry] == hash && matches(entry, buffer, start, end)) {
+                return ids[entry];
+            }
+        }
+    }
+
+    /**
+     * @return number of distinct tokens seen
+     */
+    int size() {
+        return size;
+    }
+
+    private boolean matches(int entry, ByteBuffer buffer, int start, int end) {
+        int from = starts[entry];
+        int length = (entry + 1 < size ? starts[entry + 1] : arenaSize) - from;
+        if (length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (arena[from + i] != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int add(ByteBuffer buffer, int start, int end, int hash, int slot) throws CharacterCodingException {
+        int length = end - start;
+        if (arenaSize + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + length));
+        }
+        buffer.get(start, arena, arenaSize, length);
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        int id = resolver.applyAsInt(decoder.decode(ByteBuffer.wrap(arena, arenaSize, length)).toString());
+        starts[size] = arenaSize;
+        hashes[size] = hash;
+        ids[size] = id;
+        arenaSize += length;
+        table[slot] = ++size;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int entry = 0; entry < size; entry++) {
+            int slot = hashes[entry] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = entry + 1;
+        }
+    }
+
+    private static int hash(ByteBuffer buffer, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        int mixed = (hash ^ (hash >>> 16)) * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+}
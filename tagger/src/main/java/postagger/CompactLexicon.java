@@ -0,0 +1,175 @@
+package postagger;
+
+import java.util.Arrays;
+
+/**
+ * On-heap Lexicon for large vocabularies. Words live once, in a SortedWords dictionary of UTF-8 bytes, and each word
+ * keeps only the tags that emitted it as sparse (tag ID, log-prob) pairs, stored one word after another in flat
+ * arrays. Log-probs are kept as doubles, as floats, or quantized to 16 bits over the range of the table; the dense
+ * column is rebuilt into the caller's buffer on lookup.
+ **/
+
+public final class CompactLexicon implements Lexicon {
+    /**
+     * how emission log-probs are stored
+     **/
+    public enum Precision {
+        DOUBLE, // 8 bytes, exact
+        FLOAT, // 4 bytes, about 7 significant digits
+        SHORT // 2 bytes, evenly spaced over the range from the lowest to the highest log-prob of the table
+    }
+
+    private final int numTags;
+    private final SortedWords words; // word ID = rank of the word's UTF-8 bytes
+    private final int[] rowStarts; // pairs of word ID w are [rowStarts[w], rowStarts[w+1])
+    private final char[] tagIds; // tag ID of each pair; char holds every tag ID a CompiledModel can have
+    private final Precision precision;
+    private final double[] doubleValues; // log-prob of each pair, for DOUBLE
+    private final float[] floatValues; // log-prob of each pair, for FLOAT
+    private final char[] shortValues; // (log-prob - low) / step, rounded, for SHORT
+    private final double low; // log-prob of quantized value 0
+    private final double step; // log-prob between two quantized values
+
+    private CompactLexicon(int numTags, SortedWords words, int[] rowStarts, char[] tagIds, Precision precision,
+                           double[] values) {
+        this.numTags = numTags;
+        this.words = words;
+        this.rowStarts = rowStarts;
+        this.tagIds = tagIds;
+        this.precision = precision;
+        double lowest = 0.0;
+        double highest = values.length == 0 ? 0.0 : Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            lowest = Math.min(lowest, value);
+            highest = Math.max(highest, value);
+        }
+        this.low = lowest;
+        this.step = (highest - lowest) / Character.MAX_VALUE;
+        this.doubleValues = precision == Precision.DOUBLE ? values : null;
+        this.floatValues = precision == Precision.FLOAT ? new float[values.length] : null;
+        this.shortValues = precision == Precision.SHORT ? new char[values.length] : null;
+        for (int i = 0; i < values.length; i++) {
+            if (floatValues != null) {
+                floatValues[i] = (float) values[i];
+            }
+            if (shortValues != null) {
+                shortValues[i] = step == 0 ? 0 : (char) Math.round((values[i] - low) / step);
+            }
+        }
+    }
+
+    /**
+     * copies another lexicon, keeping only the emissions that are not CompiledModel.UNSEEN; word IDs change to the
+     * rank of each word's UTF-8 bytes
+     * @param source the lexicon to copy
+     * @param numTags number of tags T of its columns
+     * @param precision how to store the log-probs
+     * @return the compact copy
+     */
+    static CompactLexicon of(Lexicon source, int numTags, Precision precision) {
+        if (numTags > Character.MAX_VALUE + 1) {
+            throw new IllegalArgumentException(numTags + " tags do not fit 16-bit tag IDs");
+        }
+        int size = source.size();
+        String[] sourceWords = new String[size];
+        for (int i = 0; i < size; i++) {
+            sourceWords[i] = source.word(i);
+        }
+        int[] order = new int[size];
+        SortedWords words = SortedWords.of(sourceWords, order);
+
+        // count the pairs first, so the flat arrays are allocated once
+        double[] buffer = new double[numTags];
+        int[] rowStarts = new int[size + 1];
+        long pairs = 0;
+        for (int id = 0; id < size; id++) {
+            rowStarts[id] = (int) pairs;
+            double[] column = source.column(order[id], buffer);
+            for (int tag = 0; tag < numTags; tag++) {
+                if (column[tag] != CompiledModel.UNSEEN) {
+                    pairs++;
+                }
+            }
+            if (pairs > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("too many emissions for one lexicon: " + pairs);
+            }
+        }
+        rowStarts[size] = (int) pairs;
+        char[] tagIds = new char[(int) pairs];
+        double[] values = new double[(int) pairs];
+        int pair = 0;
+        for (int id = 0; id < size; id++) {
+            double[] column = source.column(order[id], buffer);
+            for (int tag = 0; tag < numTags; tag++) {
+                if (column[tag] != CompiledModel.UNSEEN) {
+                    tagIds[pair] = (char) tag;
+                    values[pair++] = column[tag];
+                }
+            }
+        }
+        return new CompactLexicon(numTags, words, rowStarts, tagIds, precision, values);
+    }
+
+    /**
+     * @return how this lexicon stores its log-probs
+     */
+    public Precision precision() {
+        return precision;
+    }
+
+    /**
+     * @return number of stored (tag ID, log-prob) pairs
+     */
+    public int emissionCount() {
+        return tagIds.length;
+    }
+
+    @Override
+    public int size() {
+        return words.size();
+    }
+
+    @Override
+    public int wordId(String word) {
+        return words.find(word);
+    }
+
+    @Override
+    public String word(int wordId) {
+        return words.word(wordId);
+    }
+
+    @Override
+    public double[] column(int wordId, double[] buffer) {
+        Arrays.fill(buffer, 0, numTags, CompiledModel.UNSEEN);
+        int end = rowStarts[wordId + 1];
+        switch (precision) {
+            case DOUBLE:
+                for (int pair = rowStarts[wordId]; pair < end; pair++) {
+                    buffer[tagIds[pair]] = doubleValues[pair];
+                }
+                break;
+            case FLOAT:
+                for (int pair = rowStarts[wordId]; pair < end; pair++) {
+                    buffer[tagIds[pair]] = floatValues[pair];
+                }
+                break;
+            default:
+                for (int pair = rowStarts[wordId]; pair < end; pair++) {
+                    buffer[tagIds[pair]] = low + shortValues[pair] * step;
+                }
+        }
+        return buffer;
+    }
+
+    @Override
+    public long heapBytes() {
+        int valueBytes = precision == Precision.DOUBLE ? 8 : precision == Precision.FLOAT ? 4 : 2;
+        return words.byteCount() + 4L * rowStarts.length + (2L + valueBytes) * tagIds.length;
+    }
+
+    @Override
+    public long mappedBytes() {
+        return 0;
+    }
+}
@@ -0,0 +1,601 @@
+package postagger;
+
+import java.util.*;
+
+/**
+ * Immutable, array-backed form of a trained Sudi model. Tags are interned to the dense range 0..T-1 and words to IDs
+ * through a vocabulary table, so Viterbi decoding runs over primitive arrays instead of nested String maps.
+ **/
+
+public final class CompiledModel {
+    // log-probability given to a word that a tag never emitted; same penalty as Sudi.viterbiHelper
+    public static final double UNSEEN = -100.0;
+    // word ID used for words that are not in the vocabulary
+    public static final int UNKNOWN_WORD = -1;
+
+    private final String[] tags; // tag ID -> tag
+    private final Map<String, Integer> tagIds; // tag -> tag ID
+    private final double[] start; // start[to]: log-prob of moving from # to a tag, -infinity if never seen
+    private final double[] transitions; // transitions[from * T + to]: log-prob, -infinity if never seen
+    private final int[][] successors; // successors[from]: tags reachable from a tag, in ascending order
+    private final Lexicon lexicon; // word IDs and their emission columns: log-prob, UNSEEN if never seen
+    private final double[] unseenColumn; // emission column used for unknown words
+
+    /**
+     * @param tags tag ID -> tag
+     * @param start log-prob of moving from # to each tag, -infinity if never seen
+     * @param transitions transitions[from * T + to]: log-prob, -infinity if never seen
+     * @param lexicon word IDs and their emission columns
+     */
+    CompiledModel(String[] tags, double[] start, double[] transitions, Lexicon lexicon) {
+        Map<String, Integer> tagIds = new HashMap<>();
+        for (int i = 0; i < tags.length; i++) {
+            tagIds.put(tags[i], i);
+        }
+        this.tags = tags;
+        this.tagIds = Collections.unmodifiableMap(tagIds);
+        this.start = start;
+        this.transitions = transitions;
+        this.successors = new int[tags.length][];
+        for (int from = 0; from < tags.length; from++) {
+            int count = 0;
+            int[] row = new int[tags.length];
+            for (int to = 0; to < tags.length; to++) {
+                if (transitions[from * tags.length + to] != Double.NEGATIVE_INFINITY) {
+                    row[count++] = to;
+                }
+            }
+            successors[from] = Arrays.copyOf(row, count);
+        }
+        this.lexicon = lexicon;
+        this.unseenColumn = new double[tags.length];
+        Arrays.fill(unseenColumn, UNSEEN);
+        if (Metrics.enabled()) {
+            Metrics.current().modelBuilt(heapBytes(), mappedBytes());
+        }
+    }
+
+    /**
+     * compiles the log-probability maps of a trained Sudi into dense arrays
+     * @param observationMap Map<POS, Map<word, log-prob>>
+     * @param transitionMap Map<POS, Map<NextPOS, log-prob>>, including the # start state
+     * @return the compiled model
+     */
+    public static CompiledModel compile(Map<String, Map<String, Double>> observationMap,
+                                        Map<String, Map<String, Double>> transitionMap) {
+        long started = Metrics.startPhase();
+        String[] tags = tagOrder(observationMap, transitionMap);
+        int numTags = tags.length;
+        Map<String, Integer> tagIds = new HashMap<>();
+        for (int i = 0; i < numTags; i++) {
+            tagIds.put(tags[i], i);
+        }
+
+        // fill the start row and the transition matrix
+        double[] start = new double[numTags];
+        double[] transitions = new double[numTags * numTags];
+        Arrays.fill(start, Double.NEGATIVE_INFINITY);
+        Arrays.fill(transitions, Double.NEGATIVE_INFINITY);
+        for (String from : transitionMap.keySet()) {
+            for (Map.Entry<String, Double> entry : transitionMap.get(from).entrySet()) {
+                int to = tagIds.get(entry.getKey());
+                if (from.equals("#")) {
+                    start[to] = entry.getValue();
+                }
+                else {
+                    transitions[tagIds.get(from) * numTags + to] = entry.getValue();
+                }
+            }
+        }
+
+        // intern every observed word and fill its emission column
+        Map<String, Integer> vocabulary = new HashMap<>();
+        List<String> words = new ArrayList<>();
+        List<double[]> columns = new ArrayList<>();
+        for (String tag : observationMap.keySet()) {
+            int tagId = tagIds.get(tag);
+            for (Map.Entry<String, Double> entry : observationMap.get(tag).entrySet()) {
+                Integer wordId = vocabulary.get(entry.getKey());
+                if (wordId == null) {
+                    wordId = columns.size();
+                    vocabulary.put(entry.getKey(), wordId);
+                    words.add(entry.getKey());
+                    double[] column = new double[numTags];
+                    Arrays.fill(column, UNSEEN);
+                    columns.add(column);
+                }
+                columns.get(wordId)[tagId] = entry.getValue();
+            }
+        }
+
+        Lexicon lexicon = new DenseLexicon(vocabulary, words.toArray(new String[0]), columns.toArray(new double[0][]));
+        CompiledModel model = new CompiledModel(tags, start, transitions, lexicon);
+        Metrics.endPhase("compile", started);
+        return model;
+    }
+
+    /**
+     * interns every tag of a pair of trained maps except the # start state, in the order the maps iterate them; the
+     * decoder breaks ties towards the lower tag ID, so this order is what makes a compiled model tag like the maps
+     * @param observationMap Map<POS, Map<word, log-prob>>; only its keys are read
+     * @param transitionMap Map<POS, Map<NextPOS, log-prob>>, including the # start state; only its keys are read
+     * @return tag ID -> tag
+     */
+    static String[] tagOrder(Map<String, ? extends Map<String, Double>> observationMap,
+                             Map<String, ? extends Map<String, Double>> transitionMap) {
+        Map<String, Integer> tagIds = new LinkedHashMap<>();
+        for (String tag : observationMap.keySet()) {
+            tagIds.putIfAbsent(tag, tagIds.size());
+        }
+        for (String from : transitionMap.keySet()) {
+            if (!from.equals("#")) {
+                tagIds.putIfAbsent(from, tagIds.size());
+            }
+            for (String to : transitionMap.get(from).keySet()) {
+                tagIds.putIfAbsent(to, tagIds.size());
+            }
+        }
+        return tagIds.keySet().toArray(new String[0]);
+    }
+
+    /**
+     * @return the number of tags T
+     */
+    public int numTags() {
+        return tags.length;
+    }
+
+    /**
+     * @return the number of words in the vocabulary
+     */
+    public int vocabularySize() {
+        return lexicon.size();
+    }
+
+    /**
+     * @return the word dictionary and emission table
+     */
+    public Lexicon lexicon() {
+        return lexicon;
+    }
+
+    /**
+     * copies this model with its lexicon replaced by a CompactLexicon; word IDs differ between the two models, so
+     * sentences must be encoded by the model that decodes them
+     * @param precision how the compact lexicon stores emission log-probs
+     * @return a model with the same tags and transitions, and sparse emissions
+     */
+    public CompiledModel compact(CompactLexicon.Precision precision) {
+        return new CompiledModel(tags, start, transitions, CompactLexicon.of(lexicon, tags.length, precision));
+    }
+
+    /**
+     * @return estimated bytes the model keeps on the heap: its tables and the heap part of its lexicon
+     */
+    public long heapBytes() {
+        long bytes = 8L * (start.length + transitions.length + unseenColumn.length);
+        for (int[] row : successors) {
+            bytes += 16 + 4L * row.length;
+        }
+        for (String tag : tags) {
+            bytes += 2 * Lexicon.stringBytes(tag); // tags and tagIds
+        }
+        return bytes + lexicon.heapBytes();
+    }
+
+    /**
+     * @return bytes of model file mapped into memory, 0 for a model built in memory
+     */
+    public long mappedBytes() {
+        return lexicon.mappedBytes();
+    }
+
+    /**
+     * @return log-prob of moving from # to each tag; shared, callers must not modify it
+     */
+    double[] start() {
+        return start;
+    }
+
+    /**
+     * @return the T*T transition matrix; shared, callers must not modify it
+     */
+    double[] transitions() {
+        return transitions;
+    }
+
+    /**
+     * @param from a tag ID
+     * @return tags reachable from it, in ascending order; shared, callers must not modify it
+     */
+    int[] successors(int from) {
+        return successors[from];
+    }
+
+    /**
+     * @param tagId a tag ID, or -1 for "no tag"
+     * @return the tag for that ID, or null for -1
+     */
+    public String tag(int tagId) {
+        return tagId < 0 ? null : tags[tagId];
+    }
+
+    /**
+     * @param tag a tag
+     * @return its tag ID, or -1 if the model does not know it
+     */
+    public int tagId(String tag) {
+        Integer id = tagIds.get(tag);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param word a word
+     * @return its word ID, or UNKNOWN_WORD if it was never observed in training
+     */
+    public int wordId(String word) {
+        return lexicon.wordId(word);
+    }
+
+    /**
+     * maps every word of a sentence to its word ID
+     * @param sentence an Array String that contains words
+     * @return the int-encoded sentence
+     */
+    public int[] encode(String[] sentence) {
+        int[] wordIds = new int[sentence.length];
+        for (int i = 0; i < sentence.length; i++) {
+            wordIds[i] = wordId(sentence[i]);
+        }
+        return wordIds;
+    }
+
+    /**
+     * executes the viterbi algorithm over an int-encoded sentence, using the calling thread's scratch buffers
+     * @param wordIds word IDs as returned by encode, UNKNOWN_WORD for unseen words
+     * @return tag ID of every word, -1 where no tag sequence reaches the word
+     */
+    public int[] decode(int[] wordIds) {
+        return decode(wordIds, ViterbiScratch.forCurrentThread());
+    }
+
+    /**
+     * executes the viterbi algorithm over an int-encoded sentence; allocates nothing but the returned array once the
+     * scratch buffers have grown to fit
+     * @param wordIds word IDs as returned by encode, UNKNOWN_WORD for unseen words
+     * @param scratch lattice buffers owned by the calling thread
+     * @return tag ID of every word, -1 where no tag sequence reaches the word
+     */
+    public int[] decode(int[] wordIds, ViterbiScratch scratch) {
+        return decode(wordIds, scratch, Pruning.EXACT);
+    }
+
+    /**
+     * executes the viterbi algorithm over an int-encoded sentence, carrying forward only the states pruning keeps
+     * @param wordIds word IDs as returned by encode, UNKNOWN_WORD for unseen words
+     * @param pruning which states and successors to drop; Pruning.EXACT drops none
+     * @return tag ID of every word, -1 where no tag sequence reaches the word
+     */
+    public int[] decode(int[] wordIds, Pruning pruning) {
+        return decode(wordIds, ViterbiScratch.forCurrentThread(), pruning);
+    }
+
+    /**
+     * executes the viterbi algorithm over an int-encoded sentence, carrying forward only the states pruning keeps
+     * @param wordIds word IDs as returned by encode, UNKNOWN_WORD for unseen words
+     * @param scratch lattice buffers owned by the calling thread
+     * @param pruning which states and successors to drop; Pruning.EXACT drops none
+     * @return tag ID of every word, -1 where no tag sequence reaches the word
+     */
+    public int[] decode(int[] wordIds, ViterbiScratch scratch, Pruning pruning) {
+        scratch.ensureCapacity(wordIds.length, tags.length);
+        decodeInto(wordIds, wordIds.length, scratch, pruning);
+        return Arrays.copyOf(scratch.path, wordIds.length);
+    }
+
+    /**
+     * encodes, decodes and converts the tag IDs back to tags; the returned list is the only allocation once the
+     * calling thread's scratch buffers have grown to fit
+     * @param sentence an Array String that contains words
+     * @return Array list of sequence of tags for a line as found through viterbi decoding; if no tag sequence reaches
+     *         the last word, one null fewer than there are words, as viterbiHelper returns
+     */
+    public ArrayList<String> tag(String[] sentence) {
+        return tag(sentence, Pruning.EXACT);
+    }
+
+    /**
+     * encodes, decodes with pruning and converts the tag IDs back to tags
+     * @param sentence an Array String that contains words
+     * @param pruning which states and successors to drop; Pruning.EXACT drops none
+     * @return Array list of sequence of tags for a line as found through viterbi decoding
+     */
+    public ArrayList<String> tag(String[] sentence, Pruning pruning) {
+        ViterbiScratch scratch = ViterbiScratch.forCurrentThread();
+        int length = sentence.length;
+        scratch.ensureCapacity(length, tags.length);
+        for (int i = 0; i < length; i++) {
+            scratch.wordIds[i] = wordId(sentence[i]);
+        }
+        return tag(scratch.wordIds, length, scratch, pruning);
+    }
+
+    /**
+     * decodes an int-encoded sentence and converts the tag IDs to tags
+     * @param wordIds word IDs, UNKNOWN_WORD for unseen words
+     * @param length number of words of wordIds to decode
+     * @param scratch lattice buffers owned by the calling thread
+     * @param pruning which states and successors to drop; Pruning.EXACT drops none
+     * @return Array list of sequence of tags for a line as found through viterbi decoding; if no tag sequence reaches
+     *         the last word, one null fewer than there are words, as viterbiHelper returns
+     */
+    ArrayList<String> tag(int[] wordIds, int length, ViterbiScratch scratch, Pruning pruning) {
+        scratch.ensureCapacity(length, tags.length);
+        decodeInto(wordIds, length, scratch, pruning);
+        // viterbiHelper finds no last tag when the final column is empty, and backtracks only the words before it
+        int tagged = length > 0 && scratch.path[length - 1] < 0 ? length - 1 : length;
+        ArrayList<String> returnList = new ArrayList<>(tagged);
+        for (int i = 0; i < tagged; i++) {
+            returnList.add(tag(scratch.path[i]));
+        }
+        return returnList;
+    }
+
+    /**
+     * runs the viterbi recurrence and backtrace, leaving the tag IDs in scratch.path
+     * @param wordIds int-encoded sentence
+     * @param length number of words of wordIds to decode
+     * @param scratch lattice buffers, already grown to fit length words
+     * @param pruning which states and successors to drop
+     */
+    void decodeInto(int[] wordIds, int length, ViterbiScratch scratch, Pruning pruning) {
+        if (length == 0) {
+            return;
+        }
+        TaggerMetrics metrics = Metrics.current();
+        long started = metrics == TaggerMetrics.NOOP ? 0 : System.nanoTime();
+        long statesExpanded;
+        if (pruning.isExact()) {
+            statesExpanded = forwardExact(wordIds, length, scratch);
+        }
+        else {
+            statesExpanded = forwardPruned(wordIds, length, scratch, pruning);
+        }
+        backtrace(length, scratch);
+        if (metrics != TaggerMetrics.NOOP) {
+            report(metrics, wordIds, length, scratch, statesExpanded, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * counts the unknown words and the UNSEEN penalties on the decoded path and reports them with the timing
+     */
+    private void report(TaggerMetrics metrics, int[] wordIds, int length, ViterbiScratch scratch, long statesExpanded,
+                        long nanos) {
+        int unknownWords = 0;
+        int penalizedWords = 0;
+        for (int i = 0; i < length; i++) {
+            int tag = scratch.path[i];
+            if (wordIds[i] == UNKNOWN_WORD) {
+                unknownWords++;
+                penalizedWords++;
+            }
+            else if (tag >= 0 && emissionColumn(wordIds[i], scratch)[tag] == UNSEEN) {
+                penalizedWords++;
+            }
+        }
+        metrics.sentenceDecoded(length, unknownWords, penalizedWords, statesExpanded, nanos);
+    }
+
+    /**
+     * fills the lattice, expanding every reachable state and every successor with the current MaxPlus kernel
+     * @return number of states expanded, counting #
+     */
+    private long forwardExact(int[] wordIds, int length, ViterbiScratch scratch) {
+        int numTags = tags.length;
+        MaxPlus.Kernel kernel = MaxPlus.current();
+        long statesExpanded = 1;
+        double[] currScores = scratch.currScores;
+        int[] backtrack = scratch.backtrack;
+
+        // the first column comes from the # start state
+        double[] observation = emissionColumn(wordIds[0], scratch);
+        for (int next = 0; next < numTags; next++) {
+            currScores[next] = start[next] == Double.NEGATIVE_INFINITY
+                    ? Double.NEGATIVE_INFINITY : start[next] + observation[next];
+        }
+
+        // every later column takes the best predecessor of each state
+        for (int i = 1; i < length; i++) {
+            observation = emissionColumn(wordIds[i], scratch);
+            currScores = scratch.currScores;
+            double[] nextScores = scratch.nextScores;
+            Arrays.fill(nextScores, 0, numTags, Double.NEGATIVE_INFINITY);
+            statesExpanded += kernel.column(currScores, transitions, observation, nextScores, backtrack,
+                    i * numTags, numTags, scratch.origins);
+            scratch.swapScores();
+        }
+        return statesExpanded;
+    }
+
+    /**
+     * fills the lattice from the states kept by pruning only, following the sparse successor lists
+     * @return number of states expanded, counting #
+     */
+    private long forwardPruned(int[] wordIds, int length, ViterbiScratch scratch, Pruning pruning) {
+        int numTags = tags.length;
+        long statesExpanded = 1;
+        int[] backtrack = scratch.backtrack;
+        int[] active = scratch.active;
+
+        // the first column comes from the # start state
+        double[] observation = emissionColumn(wordIds[0], scratch);
+        boolean restrict = pruning.skipsImpossibleEmissions() && wordIds[0] != UNKNOWN_WORD
+                && hasPossibleStart(observation);
+        double[] currScores = scratch.currScores;
+        for (int next = 0; next < numTags; next++) {
+            boolean impossible = restrict && observation[next] == UNSEEN;
+            currScores[next] = start[next] == Double.NEGATIVE_INFINITY || impossible
+                    ? Double.NEGATIVE_INFINITY : start[next] + observation[next];
+        }
+        int activeCount = prune(currScores, scratch, pruning);
+
+        // every later column only expands the kept states
+        for (int i = 1; i < length; i++) {
+            observation = emissionColumn(wordIds[i], scratch);
+            currScores = scratch.currScores;
+            double[] nextScores = scratch.nextScores;
+            int backtrackRow = i * numTags;
+            restrict = pruning.skipsImpossibleEmissions() && wordIds[i] != UNKNOWN_WORD;
+            statesExpanded += activeCount;
+            boolean reached = false;
+            while (!reached) {
+                Arrays.fill(nextScores, 0, numTags, Double.NEGATIVE_INFINITY);
+                for (int a = 0; a < activeCount; a++) {
+                    int curr = active[a];
+                    double currScore = currScores[curr];
+                    int transitionRow = curr * numTags;
+                    for (int next : successors[curr]) {
+                        if (restrict && observation[next] == UNSEEN) {
+                            continue;
+                        }
+                        double nextScore = currScore + transitions[transitionRow + next] + observation[next];
+                        if (nextScore > nextScores[next]) {
+                            nextScores[next] = nextScore;
+                            backtrack[backtrackRow + next] = curr;
+                            reached = true;
+                        }
+                    }
+                }
+                // if no kept state leads to a tag that emits the word, fall back to every successor
+                if (!restrict) {
+                    break;
+                }
+                restrict = false;
+            }
+            scratch.swapScores();
+            activeCount = prune(scratch.currScores, scratch, pruning);
+        }
+        return statesExpanded;
+    }
+
+    /**
+     * @return true if some tag that can follow # emits the word whose column this is
+     */
+    private boolean hasPossibleStart(double[] observation) {
+        for (int next = 0; next < observation.length; next++) {
+            if (observation[next] != UNSEEN && start[next] != Double.NEGATIVE_INFINITY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * chooses the states of a column to carry forward: those within the margin of the best score, and among them at
+     * most beamWidth of the best, keeping ties with the last one
+     * @return number of kept states, whose IDs are left in ascending order in scratch.active
+     */
+    private int prune(double[] scores, ViterbiScratch scratch, Pruning pruning) {
+        int numTags = tags.length;
+        int[] active = scratch.active;
+        double best = Double.NEGATIVE_INFINITY;
+        for (int state = 0; state < numTags; state++) {
+            best = Math.max(best, scores[state]);
+        }
+        double floor = best - pruning.margin();
+        int count = 0;
+        for (int state = 0; state < numTags; state++) {
+            if (scores[state] != Double.NEGATIVE_INFINITY && scores[state] >= floor) {
+                active[count++] = state;
+            }
+        }
+        int beamWidth = pruning.beamWidth();
+        if (beamWidth > 0 && count > beamWidth) {
+            double[] selection = scratch.selection;
+            for (int a = 0; a < count; a++) {
+                selection[a] = scores[active[a]];
+            }
+            double threshold = kthLargest(selection, count, beamWidth);
+            int kept = 0;
+            for (int a = 0; a < count; a++) {
+                if (scores[active[a]] >= threshold) {
+                    active[kept++] = active[a];
+                }
+            }
+            count = kept;
+        }
+        return count;
+    }
+
+    /**
+     * quickselect over the first count values; reorders them
+     * @return the k-th largest of the first count values of values
+     */
+    private static double kthLargest(double[] values, int count, int k) {
+        int low = 0;
+        int high = count - 1;
+        int target = k - 1;
+        while (low < high) {
+            double pivot = values[(low + high) >>> 1];
+            int left = low;
+            int right = high;
+            while (left <= right) {
+                while (values[left] > pivot) {
+                    left++;
+                }
+                while (values[right] < pivot) {
+                    right--;
+                }
+                if (left <= right) {
+                    double swap = values[left];
+                    values[left] = values[right];
+                    values[right] = swap;
+                    left++;
+                    right--;
+                }
+            }
+            if (target <= right) {
+                high = right;
+            }
+            else if (target >= left) {
+                low = left;
+            }
+            else {
+                break;
+            }
+        }
+        return values[target];
+    }
+
+    /**
+     * finds the best final state, then follows the backpointers into scratch.path
+     */
+    private void backtrace(int length, ViterbiScratch scratch) {
+        int numTags = tags.length;
+        double[] currScores = scratch.currScores;
+        int[] backtrack = scratch.backtrack;
+        int[] path = scratch.path;
+        int last = -1;
+        double maxNum = Double.NEGATIVE_INFINITY;
+        for (int state = 0; state < numTags; state++) {
+            if (currScores[state] > maxNum) {
+                maxNum = currScores[state];
+                last = state;
+            }
+        }
+        path[length - 1] = last;
+        for (int i = length - 1; i > 0; i--) {
+            path[i - 1] = path[i] < 0 ? -1 : backtrack[i * numTags + path[i]];
+        }
+    }
+
+    /**
+     * @param wordId a word ID, or UNKNOWN_WORD
+     * @param scratch buffers of the calling thread, whose observation row the lexicon may copy the column into
+     * @return the emission column of the word; callers must not modify it
+     */
+    double[] emissionColumn(int wordId, ViterbiScratch scratch) {
+        return wordId == UNKNOWN_WORD ? unseenColumn : lexicon.column(wordId, scratch.observation);
+    }
+}
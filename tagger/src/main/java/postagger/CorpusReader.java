@@ -0,0 +1,207 @@
+package postagger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a corpus file line by line through a large direct buffer and splits each line into tokens in place: a token
+ * is only a range of bytes in the buffer, which ByteVocabulary maps to an ID without making a String. Lines end at
+ * "\n", "\r" or "\r\n" like BufferedReader.readLine, the bytes are strict UTF-8, and tokens are split exactly as
+ * line.split(" ") does.
+ **/
+
+final class CorpusReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE); // unread bytes are [position, limit)
+    private boolean endOfFile;
+    private long lineNumber;
+    private int[] tokenStarts = new int[64];
+    private int[] tokenEnds = new int[64];
+    private int tokenCount;
+
+    /**
+     * @param file the file to read
+     * @throws IOException if it cannot be opened
+     */
+    CorpusReader(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        buffer.limit(0);
+    }
+
+    /**
+     * moves to the next line and splits it into tokens
+     * @return false at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    boolean nextLine() throws IOException {
+        int scan = buffer.position();
+        while (true) {
+            int limit = buffer.limit();
+            while (scan < limit && buffer.get(scan) != '\n' && buffer.get(scan) != '\r') {
+                scan++;
+            }
+            if (scan < limit) {
+                boolean carriageReturn = buffer.get(scan) == '\r';
+                // a "\r" at the end of the buffer may be the first half of "\r\n"
+                if (!carriageReturn || scan + 1 < limit || endOfFile) {
+                    int next = scan + 1;
+                    if (carriageReturn && next < limit && buffer.get(next) == '\n') {
+                        next++;
+                    }
+                    split(buffer.position(), scan);
+                    buffer.position(next);
+                    return true;
+                }
+            }
+            else if (endOfFile) {
+                if (buffer.position() == limit) {
+                    return false;
+                }
+                split(buffer.position(), limit); // last line, without a line break
+                buffer.position(limit);
+                return true;
+            }
+            scan = fill(scan);
+        }
+    }
+
+    /**
+     * @return 1-based number of the current line
+     */
+    long lineNumber() {
+        return lineNumber;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /**
+     * @return the buffer the token ranges of the current line point into; valid until the next call to nextLine
+     */
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    int tokenCount() {
+        return tokenCount;
+    }
+
+    int tokenStart(int token) {
+        return tokenStarts[token];
+    }
+
+    int tokenEnd(int token) {
+        return tokenEnds[token];
+    }
+
+    /**
+     * @return a token of the current line as a String, for the rare paths that need one
+     * @throws CharacterCodingException if the token is not valid UTF-8
+     */
+    String token(int token) throws CharacterCodingException {
+        byte[] bytes = new byte[tokenEnds[token] - tokenStarts[token]];
+        buffer.get(tokenStarts[token], bytes);
+        return decoder.decode(ByteBuffer.wrap(bytes)).toString();
+    }
+
+    /**
+     * looks up every token of the current line
+     * @param vocabulary the vocabulary to look the tokens up in
+     * @param ids array to put the IDs in
+     * @return ids, or a larger array if the line has more tokens than fit
+     * @throws CharacterCodingException if a token seen for the first time is not valid UTF-8
+     */
+    int[] ids(ByteVocabulary vocabulary, int[] ids) throws CharacterCodingException {
+        if (ids.length < tokenCount) {
+            ids = new int[Math.max(tokenCount, ids.length * 2)];
+        }
+        for (int token = 0; token < tokenCount; token++) {
+            ids[token] = vocabulary.id(buffer, tokenStarts[token], tokenEnds[token]);
+        }
+        return ids;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * keeps the unread bytes, moved to the front of the buffer, and reads more behind them; a line longer than the
+     * buffer doubles it
+     * @return scan, moved along with the bytes
+     */
+    private int fill(int scan) throws IOException {
+        int start = buffer.position();
+        if (start == 0 && buffer.limit() == buffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+            larger.put(buffer);
+            buffer = larger;
+        }
+        else {
+            buffer.compact();
+        }
+        if (channel.read(buffer) < 0) {
+            endOfFile = true;
+        }
+        buffer.flip();
+        return scan - start;
+    }
+
+    /**
+     * splits [start, end) like Tokens.split: a line without spaces is one token, trailing empty tokens are dropped
+     */
+    private void split(int start, int end) {
+        lineNumber++;
+        tokenCount = 0;
+        boolean hasSpace = false;
+        for (int i = start; i < end && !hasSpace; i++) {
+            hasSpace = buffer.get(i) == ' ';
+        }
+        if (!hasSpace) {
+            addToken(start, end);
+            return;
+        }
+        while (end > start && buffer.get(end - 1) == ' ') {
+            end--;
+        }
+        if (end == start) {
+            return;
+        }
+        int tokenStart = start;
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == ' ') {
+                addToken(tokenStart, i);
+                tokenStart = i + 1;
+            }
+        }
+        addToken(tokenStart, end);
+    }
+
+    private void addToken(int start, int end) {
+        if (tokenCount == tokenStarts.length) {
+            tokenStarts = Arrays.copyOf(tokenStarts, tokenCount * 2);
+            tokenEnds = Arrays.copyOf(tokenEnds, tokenCount * 2);
+        }
+        tokenStarts[tokenCount] = start;
+        tokenEnds[tokenCount] = end;
+        tokenCount++;
+    }
+}
@@ -0,0 +1,121 @@
+package postagger;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table of long counts keyed by a pair of interned IDs, so counting never boxes a value.
+ **/
+
+final class CountTable {
+    private static final long EMPTY = -1L; // keys are built from two non-negative ints, so never -1
+
+    private long[] keys;
+    private long[] counts;
+    private int size;
+
+    /**
+     * @param expected number of distinct keys expected; the table grows past it as needed
+     */
+    CountTable(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        keys = new long[capacity];
+        counts = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * @return the key for a pair of IDs
+     */
+    static long key(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    static int high(long key) {
+        return (int) (key >>> 32);
+    }
+
+    static int low(long key) {
+        return (int) key;
+    }
+
+    /**
+     * adds to the count of a key, inserting it with that count if it is new
+     * @return true if the key was new
+     */
+    boolean add(long key, long amount) {
+        int slot = find(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            counts[slot] = amount;
+            size++;
+            if (size * 2 > keys.length) {
+                grow();
+            }
+            return true;
+        }
+        counts[slot] += amount;
+        return false;
+    }
+
+    /**
+     * @return the count of a key, 0 if it was never added
+     */
+    long get(long key) {
+        int slot = find(key);
+        return keys[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of slots; iterate over slots and skip those where isUsed is false
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    boolean isUsed(int slot) {
+        return keys[slot] != EMPTY;
+    }
+
+    long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    long countAt(int slot) {
+        return counts[slot];
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                int newSlot = find(oldKeys[slot]);
+                keys[newSlot] = oldKeys[slot];
+                counts[newSlot] = oldCounts[slot];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -0,0 +1,45 @@
+package postagger;
+
+import java.util.ArrayList;
+
+/**
+ * Cheap, stateless handle for decoding against one ModelSnapshot. A handle keeps the snapshot it was made from, even
+ * if its Sudi is retrained meanwhile, so every sentence it decodes uses the same model. Handles can be shared across
+ * threads or made per request.
+ **/
+
+public final class Decoder {
+    private final ModelSnapshot snapshot;
+
+    /**
+     * @param snapshot the model to decode against
+     */
+    public Decoder(ModelSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @return the model this handle decodes against
+     */
+    public ModelSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * decodes with the observation and transition maps, like Sudi.viterbiHelper
+     * @param sentence an Array String that contains words
+     * @return Array list of sequence of tags for a line as found through viterbi decoding
+     */
+    public ArrayList<String> viterbiHelper(String[] sentence) {
+        return Sudi.viterbiHelper(snapshot, sentence);
+    }
+
+    /**
+     * decodes with the compiled form of the snapshot
+     * @param sentence an Array String that contains words
+     * @return Array list of sequence of tags for a line as found through viterbi decoding
+     */
+    public ArrayList<String> tag(String[] sentence) {
+        return snapshot.compiled().tag(sentence);
+    }
+}
@@ -0,0 +1,59 @@
+package postagger;
+
+import java.util.Map;
+
+/**
+ * On-heap Lexicon: a HashMap vocabulary and one double[T] emission column per word.
+ **/
+
+public final class DenseLexicon implements Lexicon {
+    private final Map<String, Integer> vocabulary; // word -> word ID
+    private final String[] words; // word ID -> word
+    private final double[][] emissions; // emissions[wordId][tag]
+
+    /**
+     * @param vocabulary word -> word ID, with IDs 0..words.length-1
+     * @param words word ID -> word
+     * @param emissions emission column of every word ID
+     */
+    DenseLexicon(Map<String, Integer> vocabulary, String[] words, double[][] emissions) {
+        this.vocabulary = vocabulary;
+        this.words = words;
+        this.emissions = emissions;
+    }
+
+    @Override
+    public int size() {
+        return words.length;
+    }
+
+    @Override
+    public int wordId(String word) {
+        Integer id = vocabulary.get(word);
+        return id == null ? CompiledModel.UNKNOWN_WORD : id;
+    }
+
+    @Override
+    public String word(int wordId) {
+        return words[wordId];
+    }
+
+    @Override
+    public double[] column(int wordId, double[] buffer) {
+        return emissions[wordId];
+    }
+
+    @Override
+    public long heapBytes() {
+        long bytes = 0;
+        for (int word = 0; word < words.length; word++) {
+            bytes += Lexicon.stringBytes(words[word]) + 16 + 8L * emissions[word].length;
+        }
+        return bytes;
+    }
+
+    @Override
+    public long mappedBytes() {
+        return 0;
+    }
+}
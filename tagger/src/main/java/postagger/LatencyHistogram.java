@@ -0,0 +1,78 @@
+package postagger;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds, with four buckets per power of two, so a percentile read from it is
+ * within 25% of the true value. Fixed size, whatever the number or range of the samples.
+ **/
+
+final class LatencyHistogram {
+    private static final int SUB_BITS = 2; // 2^SUB_BITS buckets per power of two
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(64 << SUB_BITS);
+
+    void record(long nanos) {
+        counts.incrementAndGet(index(Math.max(0, nanos)));
+    }
+
+    long count() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound of the bucket holding that percentile, in nanoseconds; 0 without samples
+     */
+    long percentile(double percentile) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank && snapshot[i] > 0) {
+                return upperBound(i);
+            }
+        }
+        return 0;
+    }
+
+    void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * values below SUB_BUCKETS get a bucket each; above, the power of two picks a group of SUB_BUCKETS buckets and the
+     * next SUB_BITS bits below the highest one pick the bucket within it
+     */
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) | sub;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = (index >>> SUB_BITS) + SUB_BITS - 1;
+        long width = 1L << (exponent - SUB_BITS);
+        long lower = (long) (SUB_BUCKETS | (index & (SUB_BUCKETS - 1))) << (exponent - SUB_BITS);
+        return lower + width - 1;
+    }
+}
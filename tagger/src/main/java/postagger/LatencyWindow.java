@@ -0,0 +1,68 @@
+package postagger;
+
+import java.util.Arrays;
+
+/**
+ * Latencies of the most recent calls, for percentiles such as p50 and p99. Keeps a fixed ring of samples, so memory
+ * stays constant however long a service runs; older samples are overwritten. Thread-safe.
+ **/
+
+public final class LatencyWindow {
+    private final long[] samples; // nanoseconds, ring buffer
+    private long recorded; // total samples ever recorded; the next one goes to recorded % samples.length
+
+    /**
+     * @param capacity number of recent samples to keep
+     */
+    public LatencyWindow(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        samples = new long[capacity];
+    }
+
+    /**
+     * @param nanos latency of one call
+     */
+    public synchronized void record(long nanos) {
+        samples[(int) (recorded % samples.length)] = nanos;
+        recorded++;
+    }
+
+    /**
+     * @return number of samples ever recorded, including overwritten ones
+     */
+    public synchronized long count() {
+        return recorded;
+    }
+
+    /**
+     * @param percentile between 0 and 100, e.g. 99 for p99
+     * @return the latency in nanoseconds that this share of the kept samples does not exceed, 0 without samples
+     */
+    public long percentile(double percentile) {
+        return percentiles(percentile)[0];
+    }
+
+    /**
+     * computes several percentiles from one consistent copy of the samples
+     * @param percentiles each between 0 and 100
+     * @return the latency in nanoseconds for each percentile, 0 without samples
+     */
+    public long[] percentiles(double... percentiles) {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, (int) Math.min(recorded, samples.length));
+        }
+        Arrays.sort(sorted);
+        long[] result = new long[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            if (sorted.length > 0) {
+                // nearest rank
+                int rank = (int) Math.ceil(percentiles[i] / 100.0 * sorted.length);
+                result[i] = sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+            }
+        }
+        return result;
+    }
+}
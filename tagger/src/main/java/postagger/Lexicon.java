@@ -0,0 +1,54 @@
+package postagger;
+
+/**
+ * Word dictionary and emission table of a CompiledModel: maps words to dense word IDs and gives the emission
+ * log-probability of every tag for a word ID.
+ **/
+
+public interface Lexicon {
+    /**
+     * @return the number of words, which are numbered 0..size()-1
+     */
+    int size();
+
+    /**
+     * @param word a word
+     * @return its word ID, or CompiledModel.UNKNOWN_WORD if it was never observed in training
+     */
+    int wordId(String word);
+
+    /**
+     * @param wordId a word ID
+     * @return the word with that ID
+     */
+    String word(int wordId);
+
+    /**
+     * gives the emission column of a word: the log-probability of every tag emitting it, CompiledModel.UNSEEN for
+     * tags that never did
+     * @param wordId a known word ID
+     * @param buffer array of at least T doubles the column may be copied into
+     * @return the column; either buffer or an internal array, which callers must not modify
+     */
+    double[] column(int wordId, double[] buffer);
+
+    /**
+     * @return estimated bytes this lexicon keeps on the heap
+     */
+    long heapBytes();
+
+    /**
+     * @return bytes of model file this lexicon reads through memory mappings
+     */
+    long mappedBytes();
+
+    /**
+     * rough heap size of a String with its map entry, for the estimates of heapBytes
+     * @param word a word or tag
+     * @return estimated bytes
+     */
+    static long stringBytes(String word) {
+        // String header and fields, array header, Latin-1 bytes, and a hash map node with its boxed Integer
+        return 24 + 16 + word.length() + 32 + 16;
+    }
+}
@@ -0,0 +1,126 @@
+package postagger;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded, thread-safe least-recently-used cache. Every value has a weight (1 for plain size-based eviction); once the
+ * total weight goes over the limit, the least recently used entries are evicted. Counts hits, misses and evictions.
+ **/
+
+public final class LruCache<K, V> {
+    private final long maxWeight;
+    private final ToIntFunction<V> weigher;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true); // access order, eldest first
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxEntries number of entries to keep
+     */
+    public LruCache(long maxEntries) {
+        this(maxEntries, value -> 1);
+    }
+
+    /**
+     * @param maxWeight total weight of the entries to keep
+     * @param weigher weight of a value, at least 0
+     */
+    public LruCache(long maxWeight, ToIntFunction<V> weigher) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("maxWeight must not be negative");
+        }
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the cached value, or null on a miss
+     */
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses++;
+        }
+        else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * caches a value as the most recently used entry, then evicts until the total weight fits; a value heavier than
+     * the whole cache is not kept
+     * @param key the key, which must not change afterwards
+     * @param value the value, which must not be null
+     */
+    public synchronized void put(K key, V value) {
+        int valueWeight = weigher.applyAsInt(value);
+        V previous = entries.remove(key);
+        if (previous != null) {
+            weight -= weigher.applyAsInt(previous);
+        }
+        if (valueWeight > maxWeight) {
+            return;
+        }
+        entries.put(key, value);
+        weight += valueWeight;
+        Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight) {
+            weight -= weigher.applyAsInt(eldest.next().getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * drops every entry; the hit, miss and eviction counts are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public long maxWeight() {
+        return maxWeight;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * @return hits / (hits + misses), 0 before the first lookup
+     */
+    public synchronized double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d entries (weight %d of %d), %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                entries.size(), weight, maxWeight, hits, misses, 100.0 * hitRate(), evictions);
+    }
+}
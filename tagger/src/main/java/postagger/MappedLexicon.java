@@ -0,0 +1,62 @@
+package postagger;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Lexicon read straight out of a memory-mapped model file written by ModelFile. Words are stored sorted by their
+ * UTF-8 bytes, so a lookup is a binary search over the mapped pages; emission columns are copied out of the mapping one
+ * word at a time. Nothing is parsed or copied onto the heap when the model is loaded.
+ **/
+
+final class MappedLexicon implements Lexicon {
+    private final int numTags;
+    private final SortedWords words; // the mapped offsets and UTF-8 bytes of every word, in sorted order
+    private final DoubleBuffer[] emissionSegments; // emission columns, columnsPerSegment whole columns per segment
+    private final int columnsPerSegment;
+
+    MappedLexicon(int numTags, int size, IntBuffer wordOffsets, ByteBuffer wordBytes,
+                  DoubleBuffer[] emissionSegments, int columnsPerSegment) {
+        this.numTags = numTags;
+        this.words = new SortedWords(size, wordOffsets, wordBytes);
+        this.emissionSegments = emissionSegments;
+        this.columnsPerSegment = columnsPerSegment;
+    }
+
+    @Override
+    public int size() {
+        return words.size();
+    }
+
+    @Override
+    public int wordId(String word) {
+        return words.find(word);
+    }
+
+    @Override
+    public String word(int wordId) {
+        return words.word(wordId);
+    }
+
+    @Override
+    public double[] column(int wordId, double[] buffer) {
+        DoubleBuffer segment = emissionSegments[wordId / columnsPerSegment];
+        segment.get((wordId % columnsPerSegment) * numTags, buffer, 0, numTags);
+        return buffer;
+    }
+
+    @Override
+    public long heapBytes() {
+        return 64L * (3 + emissionSegments.length); // buffer objects only
+    }
+
+    @Override
+    public long mappedBytes() {
+        long bytes = words.byteCount();
+        for (DoubleBuffer segment : emissionSegments) {
+            bytes += 8L * segment.capacity();
+        }
+        return bytes;
+    }
+}
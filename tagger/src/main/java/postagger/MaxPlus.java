@@ -0,0 +1,159 @@
+package postagger;
+
+import java.util.Arrays;
+
+/**
+ * Chooses the kernel that runs the max-plus update of exact compiled decoding: every state of the next column takes
+ * the largest of currScore + transition + observation over the states of the current column, and remembers which
+ * state that was. The vector kernel uses jdk.incubator.vector to update many states at once; it is used when the JVM
+ * was started with --add-modules jdk.incubator.vector and the CPU has vectors of at least 4 doubles, and the scalar
+ * kernel otherwise. Both take the first state, in ascending order, with the strictly largest sum, and add in the same
+ * order, so they decode to the same tags.
+ *
+ * The system property postagger.vector=false keeps the scalar kernel even when the vector one could run.
+ **/
+
+public final class MaxPlus {
+    /**
+     * fills the next column of the lattice from the current one
+     **/
+    interface Kernel {
+        /**
+         * @param currScores scores of the current column, -infinity for unreached states
+         * @param transitions the T*T transition matrix
+         * @param observation emission column of the next word
+         * @param nextScores scores of the column being written, all -infinity on entry
+         * @param backtrack backpointers of every column
+         * @param backtrackRow first backpointer of the column being written
+         * @param numTags T
+         * @param origins scratch of at least T doubles
+         * @return number of states of the current column that were reached
+         */
+        int column(double[] currScores, double[] transitions, double[] observation, double[] nextScores,
+                   int[] backtrack, int backtrackRow, int numTags, double[] origins);
+    }
+
+    static final Kernel SCALAR = MaxPlus::columnScalar;
+    private static final Kernel VECTOR = loadVector();
+
+    private static volatile Kernel current = VECTOR != null && !"false".equals(System.getProperty("postagger.vector"))
+            ? VECTOR : SCALAR;
+
+    private MaxPlus() {}
+
+    /**
+     * @return whether the vector kernel can run in this JVM
+     */
+    public static boolean vectorAvailable() {
+        return VECTOR != null;
+    }
+
+    /**
+     * @return whether decoding uses the vector kernel now
+     */
+    public static boolean usingVector() {
+        return VECTOR != null && current == VECTOR;
+    }
+
+    /**
+     * switches between the kernels; decodes already running finish with the kernel they started with
+     * @param vector true for the vector kernel, false for the scalar one
+     * @throws IllegalStateException if vector is true but the vector kernel cannot run in this JVM
+     */
+    public static void useVector(boolean vector) {
+        if (vector && VECTOR == null) {
+            throw new IllegalStateException("the vector kernel needs --add-modules jdk.incubator.vector and a CPU "
+                    + "with vectors of at least 4 doubles");
+        }
+        current = vector ? VECTOR : SCALAR;
+    }
+
+    /**
+     * @return the kernel to decode with
+     */
+    static Kernel current() {
+        return current;
+    }
+
+    /**
+     * the loop exact decoding has always run: row by row over the reached states, skipping impossible transitions,
+     * a state of the next column only taking a sum strictly larger than its score so far
+     */
+    private static int columnScalar(double[] currScores, double[] transitions, double[] observation,
+                                    double[] nextScores, int[] backtrack, int backtrackRow, int numTags,
+                                    double[] origins) {
+        int reached = 0;
+        for (int curr = 0; curr < numTags; curr++) {
+            double currScore = currScores[curr];
+            if (currScore == Double.NEGATIVE_INFINITY) {
+                continue;
+            }
+            reached++;
+            int transitionRow = curr * numTags;
+            for (int next = 0; next < numTags; next++) {
+                double transition = transitions[transitionRow + next];
+                if (transition == Double.NEGATIVE_INFINITY) {
+                    continue;
+                }
+                double nextScore = currScore + transition + observation[next];
+                if (nextScore > nextScores[next]) {
+                    nextScores[next] = nextScore;
+                    backtrack[backtrackRow + next] = curr;
+                }
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * loads VectorMaxPlus by name, so this class never links against jdk.incubator.vector itself, and checks it
+     * against the scalar kernel once
+     * @return the vector kernel, or null if the module is missing, the CPU's vectors are too narrow, or the kernel
+     * disagrees with the scalar one
+     */
+    private static Kernel loadVector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            Kernel kernel = (Kernel) Class.forName("postagger.VectorMaxPlus").getDeclaredConstructor().newInstance();
+            return agrees(kernel) ? kernel : null;
+        }
+        catch (ReflectiveOperationException | LinkageError exception) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the kernel fills a small column, with unreached states, impossible transitions and ties, like
+     * the scalar one
+     */
+    private static boolean agrees(Kernel kernel) {
+        int numTags = 37; // not a multiple of any vector length, so every tail is covered too
+        double[] transitions = new double[numTags * numTags];
+        double[] observation = new double[numTags];
+        double[] currScores = new double[numTags];
+        for (int curr = 0; curr < numTags; curr++) {
+            currScores[curr] = curr % 4 == 0 ? Double.NEGATIVE_INFINITY : -(curr % 3);
+            observation[curr] = curr % 5 == 0 ? CompiledModel.UNSEEN : -0.5;
+            for (int next = 0; next < numTags; next++) {
+                transitions[curr * numTags + next] = (curr + next) % 3 == 0 ? Double.NEGATIVE_INFINITY
+                        : -((curr * next) % 4);
+            }
+        }
+        double[] scalarScores = new double[numTags];
+        double[] vectorScores = new double[numTags];
+        Arrays.fill(scalarScores, Double.NEGATIVE_INFINITY);
+        Arrays.fill(vectorScores, Double.NEGATIVE_INFINITY);
+        int[] scalarBacktrack = new int[2 * numTags];
+        int[] vectorBacktrack = new int[2 * numTags];
+        Arrays.fill(scalarBacktrack, -1);
+        Arrays.fill(vectorBacktrack, -1);
+        int scalarReached = columnScalar(currScores, transitions, observation, scalarScores, scalarBacktrack,
+                numTags, numTags, new double[numTags]);
+        int vectorReached = kernel.column(currScores, transitions, observation, vectorScores, vectorBacktrack,
+                numTags, numTags, new double[numTags]);
+        return scalarReached == vectorReached && Arrays.equals(scalarScores, vectorScores)
+                && Arrays.equals(scalarBacktrack, vectorBacktrack);
+    }
+}
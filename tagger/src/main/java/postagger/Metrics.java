@@ -0,0 +1,51 @@
+package postagger;
+
+/**
+ * Holds the TaggerMetrics that training and decoding report to; TaggerMetrics.NOOP until another one is installed.
+ **/
+
+public final class Metrics {
+    private static volatile TaggerMetrics current = TaggerMetrics.NOOP;
+
+    private Metrics() {}
+
+    /**
+     * @param metrics where measurements go from now on; TaggerMetrics.NOOP turns measuring off
+     */
+    public static void install(TaggerMetrics metrics) {
+        current = metrics == null ? TaggerMetrics.NOOP : metrics;
+    }
+
+    /**
+     * @return the installed metrics
+     */
+    public static TaggerMetrics current() {
+        return current;
+    }
+
+    /**
+     * @return whether anything but NOOP is installed
+     */
+    public static boolean enabled() {
+        return current != TaggerMetrics.NOOP;
+    }
+
+    /**
+     * @return start time of a phase for phase(), or 0 if measuring is off
+     */
+    static long startPhase() {
+        return enabled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * reports a finished phase, if measuring was on when it started
+     * @param phase name of the phase
+     * @param started what startPhase() returned
+     */
+    static void endPhase(String phase, long started) {
+        TaggerMetrics metrics = current;
+        if (started != 0 && metrics != TaggerMetrics.NOOP) {
+            metrics.trainingPhase(phase, System.nanoTime() - started);
+        }
+    }
+}
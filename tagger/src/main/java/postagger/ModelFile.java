@@ -0,0 +1,332 @@
+package postagger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Versioned binary file for a CompiledModel. Loading maps the file read-only with FileChannel.map: only the tags and
+ * the T*T transition matrix are copied onto the heap, while the vocabulary and emission columns are used in place
+ * through a MappedLexicon. Read-only mappings come from the page cache, so several JVMs loading the same file share
+ * its pages.
+ *
+ * Layout, little-endian, every section starting on an 8-byte boundary:
+ *   header      magic "SUDI", version, T, V, then the offset of each section and the file length
+ *   tables      T doubles of start log-probs, then T*T doubles of transition log-probs
+ *   tags        for each tag: int byte length, UTF-8 bytes
+ *   offsets     V + 1 ints; word i is bytes [offset i, offset i+1) of the words section
+ *   words       UTF-8 bytes of every word, sorted by unsigned byte order; word ID = rank
+ *   emissions   V columns of T doubles
+ **/
+
+public final class ModelFile {
+    private static final int MAGIC = 0x49445553; // "SUDI" read as a little-endian int
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    // emission columns are mapped in segments of at most this many bytes
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private ModelFile() {}
+
+    /**
+     * writes a model to a file, replacing it atomically so a loader never maps a half-written model
+     * @param model the model to save
+     * @param file where to save it
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(CompiledModel model, Path file) throws IOException {
+        long started = Metrics.startPhase();
+        int numTags = model.numTags();
+        Lexicon lexicon = model.lexicon();
+        int numWords = lexicon.size();
+
+        // sort the words by UTF-8 bytes, which is the order MappedLexicon searches in
+        byte[][] words = new byte[numWords][];
+        Integer[] order = new Integer[numWords];
+        for (int i = 0; i < numWords; i++) {
+            words[i] = lexicon.word(i).getBytes(StandardCharsets.UTF_8);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(words[a], words[b]));
+        byte[][] tags = new byte[numTags][];
+        long tagsBytes = 0;
+        for (int i = 0; i < numTags; i++) {
+            tags[i] = model.tag(i).getBytes(StandardCharsets.UTF_8);
+            tagsBytes += 4 + tags[i].length;
+        }
+        long wordBytes = 0;
+        for (byte[] word : words) {
+            wordBytes += word.length;
+        }
+        if (wordBytes > Integer.MAX_VALUE) {
+            throw new IOException("vocabulary is too large to save: " + wordBytes + " bytes of words");
+        }
+
+        // every section offset is known before anything is written
+        long tablesOffset = HEADER_SIZE;
+        long tagsOffset = align(tablesOffset + 8L * numTags * (numTags + 1));
+        long offsetsOffset = align(tagsOffset + tagsBytes);
+        long wordsOffset = align(offsetsOffset + 4L * (numWords + 1));
+        long emissionsOffset = align(wordsOffset + wordBytes);
+        long fileLength = emissionsOffset + 8L * numTags * numWords;
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            write(model, temporary, tags, words, order, tablesOffset, tagsOffset, offsetsOffset, wordsOffset,
+                    emissionsOffset, fileLength);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (Throwable exception) {
+            // a failed save leaves neither a half-written model nor its temporary file behind
+            try {
+                Files.deleteIfExists(temporary);
+            }
+            catch (IOException suppressed) {
+                exception.addSuppressed(suppressed);
+            }
+            throw exception;
+        }
+        Metrics.endPhase("save", started);
+    }
+
+    /**
+     * writes every section of a model to a file at the offsets save computed
+     */
+    private static void write(CompiledModel model, Path file, byte[][] tags, byte[][] words, Integer[] order,
+                              long tablesOffset, long tagsOffset, long offsetsOffset, long wordsOffset,
+                              long emissionsOffset, long fileLength) throws IOException {
+        int numTags = tags.length;
+        int numWords = words.length;
+        Lexicon lexicon = model.lexicon();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            SectionWriter out = new SectionWriter(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(numTags);
+            out.putInt(numWords);
+            out.putLong(tablesOffset);
+            out.putLong(tagsOffset);
+            out.putLong(offsetsOffset);
+            out.putLong(wordsOffset);
+            out.putLong(emissionsOffset);
+            out.putLong(fileLength);
+
+            out.padTo(tablesOffset);
+            for (double value : model.start()) {
+                out.putDouble(value);
+            }
+            for (double value : model.transitions()) {
+                out.putDouble(value);
+            }
+            out.padTo(tagsOffset);
+            for (byte[] tag : tags) {
+                out.putInt(tag.length);
+                out.put(tag);
+            }
+            out.padTo(offsetsOffset);
+            int offset = 0;
+            for (int i = 0; i < numWords; i++) {
+                out.putInt(offset);
+                offset += words[order[i]].length;
+            }
+            out.putInt(offset);
+            out.padTo(wordsOffset);
+            for (int i = 0; i < numWords; i++) {
+                out.put(words[order[i]]);
+            }
+            out.padTo(emissionsOffset);
+            double[] buffer = new double[numTags];
+            for (int i = 0; i < numWords; i++) {
+                for (double value : lexicon.column(order[i], buffer)) {
+                    out.putDouble(value);
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+    }
+
+    /**
+     * maps a model file written by save
+     * @param file the model file
+     * @return the model, with its vocabulary and emissions backed by the mapping
+     * @throws IOException if the file cannot be read, is not a model file of this version, or is corrupt
+     */
+    public static CompiledModel load(Path file) throws IOException {
+        long started = Metrics.startPhase();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException(file + " is not a Sudi model file");
+            }
+            ByteBuffer header = map(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a Sudi model file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + " has model file version " + version + ", expected " + VERSION);
+            }
+            int numTags = header.getInt();
+            int numWords = header.getInt();
+            long tablesOffset = header.getLong();
+            long tagsOffset = header.getLong();
+            long offsetsOffset = header.getLong();
+            long wordsOffset = header.getLong();
+            long emissionsOffset = header.getLong();
+            long fileLength = header.getLong();
+            if (fileLength != size) {
+                throw new IOException(file + " is truncated: expected " + fileLength + " bytes, found " + size);
+            }
+            // every section must lie where save puts it for these counts; the sizes of the tags and words sections
+            // are only known from their contents, so they are checked against the next offset further down
+            check(numTags >= 0 && numWords >= 0, file, "negative tag or word count");
+            check((long) numTags * numTags <= Integer.MAX_VALUE, file, "too many tags");
+            check(tablesOffset == HEADER_SIZE, file, "tables do not follow the header");
+            check(tagsOffset == align(tablesOffset + 8L * numTags * (numTags + 1)), file,
+                    "tags do not follow the tables");
+            check(offsetsOffset >= align(tagsOffset + 4L * numTags) && offsetsOffset <= wordsOffset, file,
+                    "tags section out of place");
+            check(wordsOffset == align(offsetsOffset + 4L * (numWords + 1)), file, "words do not follow the offsets");
+            check(emissionsOffset >= wordsOffset && emissionsOffset <= fileLength, file, "words section out of place");
+            check(fileLength == emissionsOffset + 8L * numTags * numWords, file,
+                    "emissions do not fill the rest of the file");
+
+            // the tags and transition tables are small, so they are copied onto the heap
+            DoubleBuffer tables = map(channel, tablesOffset, 8L * numTags * (numTags + 1)).asDoubleBuffer();
+            double[] start = new double[numTags];
+            double[] transitions = new double[numTags * numTags];
+            tables.get(start);
+            tables.get(transitions);
+            ByteBuffer tagsSection = map(channel, tagsOffset, offsetsOffset - tagsOffset);
+            String[] tags = new String[numTags];
+            for (int i = 0; i < numTags; i++) {
+                check(tagsSection.remaining() >= 4, file, "tags section ends early");
+                int length = tagsSection.getInt();
+                check(length >= 0 && length <= tagsSection.remaining(), file, "tag " + i + " runs out of its section");
+                byte[] tag = new byte[length];
+                tagsSection.get(tag);
+                tags[i] = new String(tag, StandardCharsets.UTF_8);
+            }
+            check(align(tagsOffset + tagsSection.position()) == offsetsOffset, file, "offsets do not follow the tags");
+
+            // the vocabulary and emissions stay in the mapping
+            ByteBuffer offsets = map(channel, offsetsOffset, 4L * (numWords + 1));
+            ByteBuffer words = map(channel, wordsOffset, emissionsOffset - wordsOffset);
+            // word lookups index the words section by these offsets, so they are checked once here instead
+            int previous = 0;
+            for (int i = 0; i <= numWords; i++) {
+                int offset = offsets.getInt(4 * i);
+                check(i == 0 ? offset == 0 : offset >= previous, file, "word offsets out of order");
+                previous = offset;
+            }
+            check(align(wordsOffset + previous) == emissionsOffset, file, "emissions do not follow the words");
+            int columnsPerSegment = (int) Math.max(1, SEGMENT_BYTES / (8L * Math.max(1, numTags)));
+            DoubleBuffer[] segments = new DoubleBuffer[(numWords + columnsPerSegment - 1) / columnsPerSegment];
+            for (int i = 0; i < segments.length; i++) {
+                long columns = Math.min(columnsPerSegment, numWords - (long) i * columnsPerSegment);
+                long position = emissionsOffset + 8L * numTags * i * columnsPerSegment;
+                segments[i] = map(channel, position, 8L * numTags * columns).asDoubleBuffer();
+            }
+            Lexicon lexicon = new MappedLexicon(numTags, numWords, offsets.asIntBuffer(), words, segments,
+                    columnsPerSegment);
+            CompiledModel model = new CompiledModel(tags, start, transitions, lexicon);
+            Metrics.endPhase("load", started);
+            return model;
+        }
+    }
+
+    /**
+     * @throws IOException naming the file and what is wrong with it, unless valid holds
+     */
+    private static void check(boolean valid, Path file, String problem) throws IOException {
+        if (!valid) {
+            throw new IOException(file + " is corrupt: " + problem);
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("model file section of " + length + " bytes is too large to map");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    /**
+     * buffers little-endian writes to a channel and keeps track of the file position
+     */
+    private static final class SectionWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        SectionWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+            position += 4;
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+            position += 8;
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+            position += 8;
+        }
+
+        void put(byte[] bytes) throws IOException {
+            for (int written = 0; written < bytes.length; ) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - written);
+                buffer.put(bytes, written, length);
+                written += length;
+                position += length;
+            }
+        }
+
+        void padTo(long offset) throws IOException {
+            while (position < offset) {
+                ensure(1);
+                buffer.put((byte) 0);
+                position++;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
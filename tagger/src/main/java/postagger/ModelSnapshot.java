@@ -0,0 +1,76 @@
+package postagger;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One trained Sudi model, frozen: the observation and transition maps can no longer change, so any number of threads
+ * can decode against a snapshot without locks. Retraining a Sudi publishes a new snapshot instead of touching this one.
+ **/
+
+public final class ModelSnapshot {
+    private final Map<String, Map<String, Double>> observationMap; // Map<POS, Map<word, log-prob>>
+    private final Map<String, Map<String, Double>> transitionMap; // Map<POS, Map<NextPOS, log-prob>>
+    private volatile CompiledModel compiled; // built on first use; any thread may build it, all builds are equal
+
+    /**
+     * freezes a pair of trained maps; the caller hands them over and must not change them afterwards
+     * @param observationMap Map<POS, Map<word, log-prob>>
+     * @param transitionMap Map<POS, Map<NextPOS, log-prob>>, including the # start state
+     */
+    ModelSnapshot(Map<String, Map<String, Double>> observationMap, Map<String, Map<String, Double>> transitionMap) {
+        this.observationMap = freeze(observationMap);
+        this.transitionMap = freeze(transitionMap);
+    }
+
+    /**
+     * @return read-only Map<POS, Map<word, log-prob>>
+     */
+    public Map<String, Map<String, Double>> observationMap() {
+        return observationMap;
+    }
+
+    /**
+     * @return read-only Map<POS, Map<NextPOS, log-prob>>
+     */
+    public Map<String, Map<String, Double>> transitionMap() {
+        return transitionMap;
+    }
+
+    /**
+     * @return the compiled form of this snapshot
+     */
+    public CompiledModel compiled() {
+        CompiledModel model = compiled;
+        if (model == null) {
+            model = CompiledModel.compile(observationMap, transitionMap);
+            compiled = model;
+        }
+        return model;
+    }
+
+    /**
+     * gathers the emission vector of a word: every state that emitted it, with its log-probability
+     * @param word a word
+     * @return read-only Map<POS, log-prob>; states missing from it never emitted the word
+     */
+    public Map<String, Double> emissions(String word) {
+        Map<String, Double> vector = new HashMap<>();
+        for (Map.Entry<String, Map<String, Double>> state : observationMap.entrySet()) {
+            Double logProb = state.getValue().get(word);
+            if (logProb != null) {
+                vector.put(state.getKey(), logProb);
+            }
+        }
+        return Collections.unmodifiableMap(vector);
+    }
+
+    /**
+     * wraps the outer map and every inner map as read-only, in place, so iteration order stays that of the trained maps
+     */
+    private static Map<String, Map<String, Double>> freeze(Map<String, Map<String, Double>> map) {
+        map.replaceAll((state, inner) -> Collections.unmodifiableMap(inner));
+        return Collections.unmodifiableMap(map);
+    }
+}
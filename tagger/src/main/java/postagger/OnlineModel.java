@@ -0,0 +1,231 @@
+package postagger;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A live tagger that folds in newly tagged sentences without retraining. The raw counts are kept; an update adds the
+ * new sentences to them and normalizes only the rows those sentences changed. The result is published as a new
+ * immutable CompiledModel through an atomic reference: unchanged tables, emission columns and blocks of words and
+ * columns are shared with the previous snapshot, changed ones are copied first, so an update costs the rows it
+ * touches rather than the size of the vocabulary, and decoders holding any snapshot never see a half-updated table and
+ * never wait on an update.
+ **/
+
+public final class OnlineModel {
+    private final TrainingCounts counts; // guarded by this
+    private final AtomicReference<CompiledModel> current = new AtomicReference<>();
+
+    // arrays of the published snapshot; never modified once published, only replaced. Guarded by this
+    private String[] tags; // in the order CompiledModel.compile gives the same counts, so ties break the same way
+    private int[] compiledIds; // tag ID of counts -> compiled tag ID, -1 for # unless a line is tagged #
+    private double[] start;
+    private double[] transitions;
+    private Map<String, Integer> vocabulary; // only grows; shared by every snapshot, which bounds it by its size
+    private String[][] words; // blocks of BlockLexicon.BLOCK_SIZE words
+    private double[][][] columns; // blocks of emission columns, laid out like words
+
+    /**
+     * @param counts counts to start from; the OnlineModel owns them from now on
+     */
+    public OnlineModel(TrainingCounts counts) {
+        this.counts = counts;
+        synchronized (this) {
+            rebuild();
+        }
+    }
+
+    /**
+     * counts a pair of training files with ParallelTrainer and starts a live model from them
+     * @param textFileWords the text file containing the actual sentences and words
+     * @param textFilePOS the text file containing the POS states
+     * @param parallelism number of counting threads
+     * @return the live model
+     * @throws IOException if a file cannot be read, or a line has more words than tags
+     */
+    public static OnlineModel train(String textFileWords, String textFilePOS, int parallelism) throws IOException {
+        return new OnlineModel(ParallelTrainer.count(textFileWords, textFilePOS, parallelism));
+    }
+
+    /**
+     * @return the latest published model; it never changes, so it can be decoded against for as long as needed
+     */
+    public CompiledModel snapshot() {
+        return current.get();
+    }
+
+    /**
+     * tags a sentence with the latest published model
+     * @param sentence an Array String that contains words
+     * @return Array list of sequence of tags for a line as found through viterbi decoding
+     */
+    public ArrayList<String> tag(String[] sentence) {
+        return snapshot().tag(sentence);
+    }
+
+    /**
+     * adds one tagged sentence and publishes the updated model
+     * @param splitLineWords the words of the sentence
+     * @param splitLinePOS the tags of the sentence
+     */
+    public void update(String[] splitLineWords, String[] splitLinePOS) {
+        update(Collections.singletonList(splitLineWords), Collections.singletonList(splitLinePOS));
+    }
+
+    /**
+     * adds tagged sentences and publishes one updated model for all of them; updates are serialized with each other
+     * but never block decoding
+     * @param sentences the words of each sentence
+     * @param sentenceTags the tags of each sentence
+     * @throws IllegalArgumentException if the lists differ in length or a sentence has more words than tags; nothing
+     *                                  is added then
+     */
+    public synchronized void update(List<String[]> sentences, List<String[]> sentenceTags) {
+        if (sentences.size() != sentenceTags.size()) {
+            throw new IllegalArgumentException(sentences.size() + " sentences but " + sentenceTags.size()
+                    + " lines of tags");
+        }
+        for (int i = 0; i < sentences.size(); i++) {
+            TrainingCounts.checkAligned(sentences.get(i), sentenceTags.get(i));
+        }
+
+        long started = Metrics.startPhase();
+        int oldWords = counts.numWords();
+        BitSet changedEmissionRows = new BitSet();
+        BitSet changedTransitionRows = new BitSet();
+        for (int i = 0; i < sentences.size(); i++) {
+            counts.addSentence(sentences.get(i), sentenceTags.get(i), changedEmissionRows, changedTransitionRows);
+        }
+        if (!Arrays.equals(counts.compiledTags(), tags)) {
+            rebuild(); // a new tag, or a new row that moves tags in the compiled order, changes every table
+            Metrics.endPhase("update", started);
+            return;
+        }
+
+        // copy and renormalize only the transition rows that changed
+        if (changedTransitionRows.get(0)) {
+            start = start.clone();
+        }
+        if (changedTransitionRows.nextSetBit(1) >= 0) {
+            transitions = transitions.clone();
+        }
+        int from = changedTransitionRows.nextSetBit(0);
+        while (from >= 0) {
+            counts.fillTransitionRow(from, compiledIds, start, transitions);
+            from = changedTransitionRows.nextSetBit(from + 1);
+        }
+
+        // new words get new columns; words of a changed emission row get copies of their columns. Only the blocks
+        // holding them are copied, every other block is shared with the previous snapshot
+        int numWords = counts.numWords();
+        if (numWords != oldWords || !changedEmissionRows.isEmpty()) {
+            BitSet copiedBlocks = new BitSet();
+            BitSet copied = new BitSet();
+            if (numWords != oldWords) {
+                words = Arrays.copyOf(words, BlockLexicon.blocks(numWords));
+                columns = Arrays.copyOf(columns, words.length);
+                for (int word = oldWords; word < numWords; word++) {
+                    int block = word >> BlockLexicon.BLOCK_SHIFT;
+                    if (!copiedBlocks.get(block)) {
+                        words[block] = words[block] == null ? new String[BlockLexicon.BLOCK_SIZE] : words[block].clone();
+                        copyBlock(block, copiedBlocks);
+                    }
+                    words[block][word & BlockLexicon.BLOCK_MASK] = counts.word(word);
+                    columns[block][word & BlockLexicon.BLOCK_MASK] = unseenColumn();
+                    copied.set(word);
+                    vocabulary.put(counts.word(word), word); // invisible to older snapshots, which are smaller
+                }
+            }
+            else {
+                columns = columns.clone();
+            }
+            int tag = changedEmissionRows.nextSetBit(0);
+            for (; tag >= 0; tag = changedEmissionRows.nextSetBit(tag + 1)) {
+                if (compiledIds[tag] < 0) {
+                    continue;
+                }
+                int[] emitted = counts.emittedWords(tag);
+                for (int i = 0; i < counts.emittedCount(tag); i++) {
+                    int word = emitted[i];
+                    int block = word >> BlockLexicon.BLOCK_SHIFT;
+                    if (!copied.get(word)) {
+                        copyBlock(block, copiedBlocks);
+                        columns[block][word & BlockLexicon.BLOCK_MASK] =
+                                columns[block][word & BlockLexicon.BLOCK_MASK].clone();
+                        copied.set(word);
+                    }
+                    columns[block][word & BlockLexicon.BLOCK_MASK][compiledIds[tag]] =
+                            counts.emissionLogProb(tag, word);
+                }
+            }
+        }
+        publish();
+        Metrics.endPhase("update", started);
+    }
+
+    /**
+     * normalizes every row into new arrays and publishes them
+     */
+    private void rebuild() {
+        tags = counts.compiledTags();
+        Map<String, Integer> tagIds = new HashMap<>();
+        for (int i = 0; i < tags.length; i++) {
+            tagIds.put(tags[i], i);
+        }
+        compiledIds = new int[counts.numTagIds()];
+        for (int tag = 0; tag < compiledIds.length; tag++) {
+            compiledIds[tag] = tagIds.getOrDefault(counts.tag(tag), -1);
+        }
+        start = new double[tags.length];
+        transitions = new double[tags.length * tags.length];
+        Arrays.fill(start, Double.NEGATIVE_INFINITY);
+        Arrays.fill(transitions, Double.NEGATIVE_INFINITY);
+        for (int from = 0; from < counts.numTagIds(); from++) {
+            counts.fillTransitionRow(from, compiledIds, start, transitions);
+        }
+        vocabulary = new ConcurrentHashMap<>(counts.vocabulary());
+        int numWords = counts.numWords();
+        words = new String[BlockLexicon.blocks(numWords)][BlockLexicon.BLOCK_SIZE];
+        columns = new double[words.length][BlockLexicon.BLOCK_SIZE][];
+        for (int word = 0; word < numWords; word++) {
+            words[word >> BlockLexicon.BLOCK_SHIFT][word & BlockLexicon.BLOCK_MASK] = counts.word(word);
+            columns[word >> BlockLexicon.BLOCK_SHIFT][word & BlockLexicon.BLOCK_MASK] = unseenColumn();
+        }
+        for (int tag = 0; tag < counts.numTagIds(); tag++) {
+            if (compiledIds[tag] < 0) {
+                continue;
+            }
+            int[] emitted = counts.emittedWords(tag);
+            for (int i = 0; i < counts.emittedCount(tag); i++) {
+                int word = emitted[i];
+                columns[word >> BlockLexicon.BLOCK_SHIFT][word & BlockLexicon.BLOCK_MASK][compiledIds[tag]] =
+                        counts.emissionLogProb(tag, word);
+            }
+        }
+        publish();
+    }
+
+    /**
+     * copies a block of emission columns the first time an update touches it; the columns themselves stay shared
+     * until they change
+     */
+    private void copyBlock(int block, BitSet copiedBlocks) {
+        if (!copiedBlocks.get(block)) {
+            columns[block] = columns[block] == null ? new double[BlockLexicon.BLOCK_SIZE][] : columns[block].clone();
+            copiedBlocks.set(block);
+        }
+    }
+
+    private double[] unseenColumn() {
+        double[] column = new double[tags.length];
+        Arrays.fill(column, CompiledModel.UNSEEN);
+        return column;
+    }
+
+    private void publish() {
+        Lexicon lexicon = new BlockLexicon(vocabulary, counts.numWords(), words, columns);
+        current.set(new CompiledModel(tags, start, transitions, lexicon));
+    }
+}
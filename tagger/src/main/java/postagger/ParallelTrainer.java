@@ -0,0 +1,198 @@
+package postagger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Counts a pair of training files on several threads. The calling thread reads the two UTF-8 files in lockstep and
+ * hands chunks of line pairs to workers; each worker counts into its own TrainingCounts shard, and the shards are merged
+ * once at the end, so no counter is ever shared between threads.
+ **/
+
+public final class ParallelTrainer {
+    // line pairs handed to a worker at a time
+    private static final int CHUNK_LINES = 1024;
+    private static final Chunk END = new Chunk(0, new String[0], new String[0]);
+
+    private ParallelTrainer() {}
+
+    /**
+     * counts every sentence of a pair of training files
+     * @param textFileWords the text file containing the actual sentences and words
+     * @param textFilePOS the text file containing the POS states
+     * @param parallelism number of counting threads
+     * @return merged counts of both files
+     * @throws IOException if a file cannot be read, a line has more words than tags, or the files differ in length
+     */
+    public static TrainingCounts count(String textFileWords, String textFilePOS, int parallelism)
+            throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        long started = Metrics.startPhase();
+        BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(2 * parallelism);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+        List<Future<TrainingCounts>> shards = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            shards.add(workers.submit(() -> countChunks(chunks, failure)));
+        }
+
+        boolean workerDied = false; // a worker stopped before its end marker, so the queue may never drain again
+        try {
+            Path wordsPath = Paths.get(textFileWords);
+            Path posPath = Paths.get(textFilePOS);
+            // UTF-8 and the same line-count check as TaggedCorpus, so the counts do not depend on the thread count
+            try (BufferedReader textFileWordsBuff = Files.newBufferedReader(wordsPath, StandardCharsets.UTF_8);
+                 BufferedReader textFilePOSToRead = Files.newBufferedReader(posPath, StandardCharsets.UTF_8)) {
+                // trainSudi only lower-cases the first line of each file; do the same so the counts match
+                String lineOfWords = textFileWordsBuff.readLine();
+                String lineOfPOS = textFilePOSToRead.readLine();
+                if (lineOfWords != null && lineOfPOS != null) {
+                    lineOfWords = lineOfWords.toLowerCase();
+                    lineOfPOS = lineOfPOS.toLowerCase();
+                }
+                long lineNumber = 1;
+                while (lineOfWords != null && lineOfPOS != null && failure.get() == null) {
+                    String[] words = new String[CHUNK_LINES];
+                    String[] tags = new String[CHUNK_LINES];
+                    int count = 0;
+                    while (count < CHUNK_LINES && lineOfWords != null && lineOfPOS != null) {
+                        words[count] = lineOfWords;
+                        tags[count] = lineOfPOS;
+                        count++;
+                        lineOfWords = textFileWordsBuff.readLine();
+                        lineOfPOS = textFilePOSToRead.readLine();
+                    }
+                    if (!offer(chunks, new Chunk(lineNumber, Arrays.copyOf(words, count), Arrays.copyOf(tags, count)),
+                            shards)) {
+                        workerDied = true;
+                        break;
+                    }
+                    lineNumber += count;
+                }
+                if (!workerDied && failure.get() == null && (lineOfWords == null) != (lineOfPOS == null)) {
+                    throw new IOException((lineOfWords == null ? wordsPath : posPath) + " ends after line "
+                            + (lineNumber - 1) + ", but " + (lineOfWords == null ? posPath : wordsPath) + " goes on");
+                }
+            }
+            finally {
+                for (int i = 0; i < parallelism && !workerDied; i++) {
+                    workerDied = !offer(chunks, END, shards);
+                }
+            }
+            if (workerDied) {
+                // the workers still running are never handed an end marker; shutdownNow below interrupts them
+                for (Future<TrainingCounts> shard : shards) {
+                    if (shard.isDone()) {
+                        shard.get();
+                    }
+                }
+            }
+
+            List<TrainingCounts> counted = new ArrayList<>();
+            for (Future<TrainingCounts> shard : shards) {
+                counted.add(shard.get());
+            }
+            Metrics.endPhase("count", started);
+
+            started = Metrics.startPhase();
+            TrainingCounts merged = new TrainingCounts();
+            for (TrainingCounts shard : counted) {
+                merged.addAll(shard);
+            }
+            Metrics.endPhase("merge", started);
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            return merged;
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while training", exception);
+        }
+        catch (ExecutionException exception) {
+            throw new IOException(exception.getCause());
+        }
+        finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * puts a chunk on the queue, waiting while it is full, unless a worker has died: workers only finish early by
+     * failing outside the lines they count, and then nothing may ever take from the queue again
+     * @return false if a worker died, without putting the chunk
+     */
+    private static boolean offer(BlockingQueue<Chunk> chunks, Chunk chunk, List<Future<TrainingCounts>> shards)
+            throws InterruptedException {
+        while (!chunks.offer(chunk, 10, TimeUnit.MILLISECONDS)) {
+            for (Future<TrainingCounts> shard : shards) {
+                if (shard.isDone() && failed(shard)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether a finished worker threw instead of returning its shard
+     */
+    private static boolean failed(Future<TrainingCounts> shard) throws InterruptedException {
+        try {
+            shard.get();
+            return false;
+        }
+        catch (ExecutionException | CancellationException exception) {
+            return true;
+        }
+    }
+
+    /**
+     * worker loop: counts chunks into a private shard until the end marker; after a failure it keeps taking chunks
+     * without counting them, so the reader never blocks on a full queue
+     */
+    private static TrainingCounts countChunks(BlockingQueue<Chunk> chunks, AtomicReference<IOException> failure)
+            throws InterruptedException {
+        TrainingCounts shard = new TrainingCounts();
+        for (Chunk chunk = chunks.take(); chunk != END; chunk = chunks.take()) {
+            if (failure.get() != null) {
+                continue;
+            }
+            for (int i = 0; i < chunk.words.length; i++) {
+                try {
+                    shard.addSentence(Tokens.split(chunk.words[i]), Tokens.split(chunk.tags[i]));
+                }
+                catch (IllegalArgumentException exception) {
+                    failure.compareAndSet(null, new IOException("line " + (chunk.firstLine + i) + ": "
+                            + exception.getMessage()));
+                    break;
+                }
+            }
+        }
+        return shard;
+    }
+
+    /**
+     * consecutive line pairs, starting at firstLine (1-based)
+     */
+    private static final class Chunk {
+        final long firstLine;
+        final String[] words;
+        final String[] tags;
+
+        Chunk(long firstLine, String[] words, String[] tags) {
+            this.firstLine = firstLine;
+            this.words = words;
+            this.tags = tags;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package postagger;
+
+/**
+ * Settings for approximate Viterbi decoding with a CompiledModel. After each word only the best states are carried
+ * forward: at most beamWidth of them, and only those within margin log-prob of the best state. Successors that cannot
+ * emit the word may also be skipped. Instances are immutable; each setter returns a copy.
+ **/
+
+public final class Pruning {
+    // decodes every state and successor, same as CompiledModel.decode without pruning
+    public static final Pruning EXACT = new Pruning(0, Double.POSITIVE_INFINITY, false);
+
+    private final int beamWidth; // states kept per word, 0 for no limit
+    private final double margin; // log-prob distance from the best state within which states are kept
+    private final boolean skipImpossibleEmissions; // skip successors that never emitted a known word
+
+    private Pruning(int beamWidth, double margin, boolean skipImpossibleEmissions) {
+        this.beamWidth = beamWidth;
+        this.margin = margin;
+        this.skipImpossibleEmissions = skipImpossibleEmissions;
+    }
+
+    /**
+     * @param beamWidth states kept per word, 0 for no limit; states tied with the last one kept are kept as well
+     * @return a copy of these settings with that beam width
+     */
+    public Pruning beamWidth(int beamWidth) {
+        if (beamWidth < 0) {
+            throw new IllegalArgumentException("beamWidth must not be negative");
+        }
+        return new Pruning(beamWidth, margin, skipImpossibleEmissions);
+    }
+
+    /**
+     * @param margin states scoring more than this far below the best state are dropped; infinity for no limit
+     * @return a copy of these settings with that margin
+     */
+    public Pruning margin(double margin) {
+        if (!(margin >= 0)) {
+            throw new IllegalArgumentException("margin must not be negative");
+        }
+        return new Pruning(beamWidth, margin, skipImpossibleEmissions);
+    }
+
+    /**
+     * @param skip whether to skip successors that never emitted the current word, when the word is in the vocabulary
+     * @return a copy of these settings with that choice
+     */
+    public Pruning skipImpossibleEmissions(boolean skip) {
+        return new Pruning(beamWidth, margin, skip);
+    }
+
+    public int beamWidth() {
+        return beamWidth;
+    }
+
+    public double margin() {
+        return margin;
+    }
+
+    public boolean skipsImpossibleEmissions() {
+        return skipImpossibleEmissions;
+    }
+
+    /**
+     * @return true if these settings drop nothing, so decoding is exact
+     */
+    public boolean isExact() {
+        return beamWidth == 0 && margin == Double.POSITIVE_INFINITY && !skipImpossibleEmissions;
+    }
+
+    @Override
+    public String toString() {
+        if (isExact()) {
+            return "exact";
+        }
+        StringBuilder description = new StringBuilder();
+        if (beamWidth > 0) {
+            description.append("top-").append(beamWidth);
+        }
+        if (margin != Double.POSITIVE_INFINITY) {
+            description.append(description.length() == 0 ? "" : ", ").append("margin ").append(margin);
+        }
+        if (skipImpossibleEmissions) {
+            description.append(description.length() == 0 ? "" : ", ").append("skip impossible emissions");
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package postagger;
+
+import java.util.*;
+
+/**
+ * Puts pruned decoding next to exact decoding on the same sentences, so a beam width or margin can be chosen from
+ * measured accuracy loss against tokens per second.
+ **/
+
+public final class PruningReport {
+    private PruningReport() {}
+
+    /**
+     * decodes the sentences exactly and with each pruning setting, timing each pass after one warm-up pass
+     * @param model the compiled model to decode with
+     * @param sentences sentences already split into words
+     * @param goldTags actual tags of each sentence, or null to report only agreement with exact decoding
+     * @param settings the pruning settings to compare against exact decoding
+     * @return one line per setting, exact decoding first, with tokens/sec, agreement with exact decoding and accuracy
+     */
+    public static String compare(CompiledModel model, List<String[]> sentences, List<String[]> goldTags,
+                                 Pruning... settings) {
+        List<int[]> encoded = new ArrayList<>(sentences.size());
+        long tokens = 0;
+        for (String[] sentence : sentences) {
+            encoded.add(model.encode(sentence));
+            tokens += sentence.length;
+        }
+
+        List<Pruning> all = new ArrayList<>();
+        all.add(Pruning.EXACT);
+        all.addAll(Arrays.asList(settings));
+        int[][] exact = null;
+        StringBuilder report = new StringBuilder();
+        for (Pruning pruning : all) {
+            decodeAll(model, encoded, pruning); // warm-up
+            long startTime = System.nanoTime();
+            int[][] decoded = decodeAll(model, encoded, pruning);
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            if (exact == null) {
+                exact = decoded;
+            }
+
+            long agree = 0;
+            long correct = 0;
+            long total = 0;
+            for (int s = 0; s < decoded.length; s++) {
+                String[] gold = goldTags == null ? null : goldTags.get(s);
+                for (int i = 0; i < decoded[s].length; i++) {
+                    if (decoded[s][i] == exact[s][i]) {
+                        agree++;
+                    }
+                    if (gold != null && i < gold.length) {
+                        if (gold[i].equals(model.tag(decoded[s][i]))) {
+                            correct++;
+                        }
+                        total++;
+                    }
+                }
+            }
+            report.append(String.format("%-40s %,12.0f tokens/sec, %7.3f%% agreement with exact", pruning,
+                    tokens / seconds, 100.0 * agree / Math.max(1, tokens)));
+            if (goldTags != null) {
+                report.append(String.format(", %7.3f%% accuracy", 100.0 * correct / Math.max(1, total)));
+            }
+            report.append('\n');
+        }
+        return report.toString();
+    }
+
+    private static int[][] decodeAll(CompiledModel model, List<int[]> encoded, Pruning pruning) {
+        int[][] decoded = new int[encoded.size()][];
+        for (int s = 0; s < decoded.length; s++) {
+            decoded[s] = model.decode(encoded.get(s), pruning);
+        }
+        return decoded;
+    }
+}
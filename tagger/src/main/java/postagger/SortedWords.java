@@ -0,0 +1,185 @@
+package postagger;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Word dictionary stored as the UTF-8 bytes of every word, sorted by unsigned byte order, with the word ID being the
+ * rank. A lookup compares the String against stored bytes, encoding it on the fly, so it allocates nothing. The
+ * buffers may be on the heap or mapped from a model file. A mapped dictionary is binary searched; one built on the heap
+ * also gets a hash index, so a lookup usually compares against a single stored word instead of about log2(size).
+ **/
+
+final class SortedWords {
+    private final int size;
+    private final IntBuffer offsets; // size + 1 offsets into bytes; word i is [offset i, offset i+1)
+    private final ByteBuffer bytes; // UTF-8 bytes of every word, in sorted order
+    private final int[] index; // open addressing by String.hashCode: word ID + 1, 0 if empty; null to binary search
+
+    /**
+     * @param size number of words
+     * @param offsets size + 1 offsets into bytes
+     * @param bytes UTF-8 bytes of every word, sorted by unsigned byte order
+     */
+    SortedWords(int size, IntBuffer offsets, ByteBuffer bytes) {
+        this(size, offsets, bytes, null);
+    }
+
+    private SortedWords(int size, IntBuffer offsets, ByteBuffer bytes, int[] index) {
+        this.size = size;
+        this.offsets = offsets;
+        this.bytes = bytes;
+        this.index = index;
+    }
+
+    /**
+     * sorts words by their UTF-8 bytes into heap arrays
+     * @param words the words, without duplicates
+     * @param order filled with the index in words of each word ID, so order[id] is where the word came from
+     * @return the sorted dictionary
+     */
+    static SortedWords of(String[] words, int[] order) {
+        byte[][] encoded = new byte[words.length][];
+        Integer[] sorted = new Integer[words.length];
+        long length = 0;
+        for (int i = 0; i < words.length; i++) {
+            encoded[i] = words[i].getBytes(StandardCharsets.UTF_8);
+            sorted[i] = i;
+            length += encoded[i].length;
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("vocabulary is too large: " + length + " bytes of words");
+        }
+        Arrays.sort(sorted, (a, b) -> Arrays.compareUnsigned(encoded[a], encoded[b]));
+        int[] offsets = new int[words.length + 1];
+        byte[] bytes = new byte[(int) length];
+        int offset = 0;
+        for (int id = 0; id < words.length; id++) {
+            order[id] = sorted[id];
+            byte[] word = encoded[sorted[id]];
+            offsets[id] = offset;
+            System.arraycopy(word, 0, bytes, offset, word.length);
+            offset += word.length;
+        }
+        offsets[words.length] = offset;
+
+        // at most half full, so probe sequences stay short
+        int[] index = new int[Integer.highestOneBit(Math.max(1, words.length)) << 2];
+        for (int id = 0; id < words.length; id++) {
+            int slot = mix(words[order[id]].hashCode()) & (index.length - 1);
+            while (index[slot] != 0) {
+                slot = (slot + 1) & (index.length - 1);
+            }
+            index[slot] = id + 1;
+        }
+        return new SortedWords(words.length, IntBuffer.wrap(offsets), ByteBuffer.wrap(bytes), index);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return bytes of the offsets and words
+     */
+    long byteCount() {
+        return 4L * offsets.capacity() + bytes.capacity() + (index == null ? 0 : 4L * index.length);
+    }
+
+    /**
+     * @param word a word
+     * @return its rank, or CompiledModel.UNKNOWN_WORD if it is not in the dictionary
+     */
+    int find(String word) {
+        if (index != null) {
+            int slot = mix(word.hashCode()) & (index.length - 1);
+            for (int entry = index[slot]; entry != 0; entry = index[slot]) {
+                if (compare(entry - 1, word) == 0) {
+                    return entry - 1;
+                }
+                slot = (slot + 1) & (index.length - 1);
+            }
+            return CompiledModel.UNKNOWN_WORD;
+        }
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(middle, word);
+            if (comparison < 0) {
+                low = middle + 1;
+            }
+            else if (comparison > 0) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        return CompiledModel.UNKNOWN_WORD;
+    }
+
+    /**
+     * @param wordId a rank
+     * @return the word with that rank, decoded into a new String
+     */
+    String word(int wordId) {
+        int start = offsets.get(wordId);
+        byte[] word = new byte[offsets.get(wordId + 1) - start];
+        bytes.get(start, word);
+        return new String(word, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * compares a stored word with a String by UTF-8 byte order, encoding the String on the fly so that lookups do not
+     * allocate
+     * @return negative, zero or positive as the stored word sorts before, equal to or after word
+     */
+    private int compare(int wordId, String word) {
+        int position = offsets.get(wordId);
+        int end = offsets.get(wordId + 1);
+        for (int i = 0; i < word.length(); ) {
+            int codePoint = word.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) {
+                codePoint = '?'; // String.getBytes writes unpaired surrogates as '?'
+            }
+            int length = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            for (int b = 0; b < length; b++) {
+                if (position == end) {
+                    return -1; // the stored word is a prefix of word
+                }
+                int stored = bytes.get(position++) & 0xFF;
+                int wanted = utf8Byte(codePoint, length, b);
+                if (stored != wanted) {
+                    return stored - wanted;
+                }
+            }
+        }
+        return position == end ? 0 : 1;
+    }
+
+    /**
+     * spreads the bits of a String hash, which differ mostly in the low bits for short words
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return byte b of the UTF-8 encoding of codePoint, which is length bytes long
+     */
+    private static int utf8Byte(int codePoint, int length, int b) {
+        if (length == 1) {
+            return codePoint;
+        }
+        if (b == 0) {
+            int lead = length == 2 ? 0xC0 : length == 3 ? 0xE0 : 0xF0;
+            return lead | (codePoint >> (6 * (length - 1)));
+        }
+        return 0x80 | ((codePoint >> (6 * (length - 1 - b))) & 0x3F);
+    }
+}
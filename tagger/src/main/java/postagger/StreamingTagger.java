@@ -0,0 +1,213 @@
+package postagger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Tags a stream of sentences with bounded memory. A reader thread cuts the input into batches and hands each one to
+ * the decode workers; the calling thread writes finished batches to a sink in input order. The queue between the
+ * stages is bounded, so the reader stops reading while the decoders or the sink are behind.
+ **/
+
+public final class StreamingTagger implements AutoCloseable {
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * receives every tagged sentence, in input order
+     */
+    public interface TagSink {
+        void accept(String[] words, ArrayList<String> tags) throws IOException;
+    }
+
+    private final CompiledModel model;
+    private final ExecutorService decoders;
+    private final int batchSize;
+    private final int queueDepth;
+
+    /**
+     * @param model the compiled model to decode with
+     * @param parallelism number of decode threads
+     */
+    public StreamingTagger(CompiledModel model, int parallelism) {
+        this(model, parallelism, DEFAULT_BATCH_SIZE, 2 * parallelism);
+    }
+
+    /**
+     * @param model the compiled model to decode with
+     * @param parallelism number of decode threads
+     * @param batchSize sentences per batch handed to a decode thread
+     * @param queueDepth batches that may be read ahead of the sink; bounds memory to about
+     *                   (queueDepth + 1) * batchSize sentences
+     */
+    public StreamingTagger(CompiledModel model, int parallelism, int batchSize, int queueDepth) {
+        if (parallelism < 1 || batchSize < 1 || queueDepth < 1) {
+            throw new IllegalArgumentException("parallelism, batchSize and queueDepth must be positive");
+        }
+        this.model = model;
+        this.batchSize = batchSize;
+        this.queueDepth = queueDepth;
+        this.decoders = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "sudi-decoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * tags every line of a file and writes the tags of each line, separated by spaces, to another file
+     * @param sentencesFile UTF-8 file with one sentence per line
+     * @param tagsFile UTF-8 file to write one line of tags per sentence to
+     * @return number of sentences tagged
+     * @throws IOException if either file cannot be read or written
+     */
+    public long tag(Path sentencesFile, Path tagsFile) throws IOException {
+        try (Reader in = Files.newBufferedReader(sentencesFile, StandardCharsets.UTF_8);
+             Writer out = Files.newBufferedWriter(tagsFile, StandardCharsets.UTF_8)) {
+            return tag(in, out);
+        }
+    }
+
+    /**
+     * tags every line read from in and writes the tags of each line, separated by spaces, to out
+     * @param in sentences, one per line
+     * @param out receives one line of tags per sentence
+     * @return number of sentences tagged
+     * @throws IOException if reading or writing fails
+     */
+    public long tag(Reader in, Writer out) throws IOException {
+        long count = tag(in, (words, tags) -> {
+            out.write(String.join(" ", tags));
+            out.write('\n');
+        });
+        out.flush();
+        return count;
+    }
+
+    /**
+     * tags every line read from in and passes each result to sink, in input order
+     * @param in sentences, one per line
+     * @param sink receives each sentence with its tags
+     * @return number of sentences tagged
+     * @throws IOException if reading fails or the sink throws; other failures of the reader or decode threads are
+     *                     rethrown as they are
+     */
+    public long tag(Reader in, TagSink sink) throws IOException {
+        BufferedReader sentences = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        BlockingQueue<Future<Batch>> pending = new ArrayBlockingQueue<>(queueDepth);
+        Thread reader = new Thread(() -> readBatches(sentences, pending), "sudi-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        long count = 0;
+        try {
+            while (true) {
+                Batch batch = pending.take().get();
+                if (batch.words.length == 0) {
+                    return count; // end of input
+                }
+                for (int i = 0; i < batch.words.length; i++) {
+                    sink.accept(batch.words[i], batch.tags.get(i));
+                }
+                count += batch.words.length;
+            }
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while tagging");
+        }
+        catch (ExecutionException exception) {
+            // the reader's or a decoder's failure, rethrown here as it was
+            Throwable cause = exception.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+        finally {
+            // stops the reader if the sink failed before the end of the input
+            reader.interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        decoders.shutdown();
+    }
+
+    /**
+     * reader stage: cuts the input into batches and queues each one for decoding; blocks while the queue is full. It
+     * always ends the queue, with the end marker or with whatever stopped it, so the writer stage never waits forever
+     */
+    private void readBatches(BufferedReader sentences, BlockingQueue<Future<Batch>> pending) {
+        Future<Batch> end = null;
+        try {
+            List<String[]> lines = new ArrayList<>(batchSize);
+            String sentenceLine = sentences.readLine();
+            while (sentenceLine != null) {
+                lines.add(sentenceLine.split(" "));
+                if (lines.size() == batchSize) {
+                    pending.put(submit(lines));
+                    lines = new ArrayList<>(batchSize);
+                }
+                sentenceLine = sentences.readLine();
+            }
+            if (!lines.isEmpty()) {
+                pending.put(submit(lines));
+            }
+            end = CompletableFuture.completedFuture(new Batch(new String[0][]));
+        }
+        catch (InterruptedException exception) {
+            // the writer stage gave up; nobody is waiting for more batches
+        }
+        catch (Throwable failure) {
+            // a read error, but also running out of memory or submitting after the decoders were shut down
+            end = CompletableFuture.failedFuture(failure);
+        }
+        finally {
+            if (end != null) {
+                try {
+                    pending.put(end);
+                }
+                catch (InterruptedException exception) {
+                    // the writer stage gave up
+                }
+            }
+        }
+    }
+
+    /**
+     * decode stage: tags one batch on a decode thread
+     */
+    private Future<Batch> submit(List<String[]> lines) {
+        Batch batch = new Batch(lines.toArray(new String[0][]));
+        return decoders.submit(() -> {
+            for (int i = 0; i < batch.words.length; i++) {
+                batch.tags.set(i, model.tag(batch.words[i]));
+            }
+            return batch;
+        });
+    }
+
+    /**
+     * a run of consecutive sentences and, once decoded, their tags
+     */
+    private static final class Batch {
+        final String[][] words;
+        final ArrayList<ArrayList<String>> tags;
+
+        Batch(String[][] words) {
+            this.words = words;
+            this.tags = new ArrayList<>(Collections.nCopies(words.length, null));
+        }
+    }
+}
@@ -0,0 +1,809 @@
+package postagger;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Takes a sequence of words and produce the corresponding sequence of tags using POS tagging via HMM.
+ **/
+
+public class Sudi {
+    // trained observation and transition maps; replaced as a whole by training, never changed in place
+    private volatile ModelSnapshot snapshot = new ModelSnapshot(new HashMap<>(), new HashMap<>());
+    private volatile TagCache cache; // optional cache of tagged sentences; null when caching is off
+    private String textFile; // Text file to train with
+    private String textFilePOSVar; // Text file's respective POS tags to train with
+    // empty constructor; used for test case 0
+    public Sudi(){}
+    public Sudi(String textFileWords, String textFilePOS) throws IOException {
+
+        try {
+            textFile = textFileWords;
+            textFilePOSVar = textFilePOS;
+            trainSudi(textFile, textFilePOSVar);
+        }
+        catch (IOException exception) {
+            System.out.println("Sorry, this does not work. Here is the error: " + exception.getMessage());
+        }
+    }
+    /**
+     * trains Sudi, our text recognition bot, using the text file of words and the text file of POS states for each word
+     * @param textFileWords the text file containing the actual sentences and words
+     * @param textFilePOS the text file containing the POS states
+     * @throws IOException
+     */
+    public void trainSudi(String textFileWords, String textFilePOS) throws IOException {
+        // Observation map: Map<POS, Map<word, frequency>>
+        Map<String, Map<String, Double>> observationMap = new HashMap<>();
+        // Transition map: Map<POS, Map<NextPOS, frequency>>
+        Map<String, Map<String, Double>> transitionMap = new HashMap<>();
+
+        try {
+            long started = Metrics.startPhase();
+            BufferedReader textFileWordsBuff = new BufferedReader(new FileReader(textFileWords));
+            BufferedReader textFilePOSToReadOne = new BufferedReader(new FileReader(textFilePOS));
+            // ---------------------------------------------------------------------------------
+            // create the observation map: Map<POS, Map<Word, frequency>>
+            String lineOfWords = textFileWordsBuff.readLine().toLowerCase();
+            String lineOfPOSOne = textFilePOSToReadOne.readLine().toLowerCase();
+
+            while (lineOfWords != null && lineOfPOSOne != null) {
+                String[] splitLineWords = lineOfWords.split(" ");
+                String[] splitLinePOS = lineOfPOSOne.split(" ");
+                for (int i = 0; i < splitLineWords.length; i++) {
+                    // if map already contains the POS
+                    if (observationMap.containsKey(splitLinePOS[i])) {
+                        // if the nested map already has a Key for the Word
+                        if (observationMap.get(splitLinePOS[i]).containsKey(splitLineWords[i])) {
+                            Double tempValue = observationMap.get(splitLinePOS[i]).get(splitLineWords[i]) + 1.0;
+                            observationMap.get(splitLinePOS[i]).put(splitLineWords[i], tempValue);
+                        }
+                        // if the nested map does not have a Key for the POS yet,
+                        // put the POS as the Key and 1.0 as the value in the nested map
+                        else {
+                            observationMap.get(splitLinePOS[i]).put(splitLineWords[i], 1.0);
+                        }
+                    }
+                    // if the map does not already contain the word
+                    else {
+                        // create the nested Map with the POS as the Key and 1.0 as the value
+                        Map<String, Double> tempMap = new HashMap<>();
+                        tempMap.put(splitLineWords[i], 1.0);
+                        observationMap.put(splitLinePOS[i], tempMap);
+                    }
+                }
+
+                // create the transition map: Map<POS, Map<NextPOS, frequency>>
+                String startingPOS = "#";
+                for (int i = 0; i < splitLinePOS.length; i++) {
+                    // if the transition map already has a Key for the POS
+                    if (transitionMap.containsKey(startingPOS)) {
+                        // if the nested map already has a Key for the other POS
+                        if (transitionMap.get(startingPOS).containsKey(splitLinePOS[i])) {
+                            Double tempValue = transitionMap.get(startingPOS).get(splitLinePOS[i]) + 1.0;
+                            transitionMap.get(startingPOS).put(splitLinePOS[i], tempValue);
+                        }
+                        // if the nested map does not have a Key for the other POS yet,
+                        // put the other POS as the Key and 1.0 as the value in the nested map
+                        else {
+                            transitionMap.get(startingPOS).put(splitLinePOS[i], 1.0);
+                        }
+                    }
+                    // if the map does not already contain the startingPOS
+                    else {
+                        // create the nested Map with the current POS as the Key and 1.0 as the value
+                        Map<String, Double> tempMap = new HashMap<>();
+                        tempMap.put(splitLinePOS[i], 1.0);
+                        transitionMap.put(startingPOS, tempMap);
+                    }
+                    // make the new startingPOS as the current POS we are on
+                    startingPOS = splitLinePOS[i];
+                }
+                lineOfWords = textFileWordsBuff.readLine();
+                lineOfPOSOne = textFilePOSToReadOne.readLine();
+            }
+            textFileWordsBuff.close();
+            textFilePOSToReadOne.close();
+            Metrics.endPhase("count", started);
+            started = Metrics.startPhase();
+
+            // ---------------------------------------------------------------------------------
+
+            // normalizing each observation state's counts to probabilities
+            for (String i : observationMap.keySet()) {
+                double sum = 0;
+                for (String i2 : observationMap.get(i).keySet()) {
+                    sum += observationMap.get(i).get(i2);
+                }
+                for (String i2 : observationMap.get(i).keySet()) {
+                    observationMap.get(i).put(i2, Math.log(observationMap.get(i).get(i2) / sum));
+                }
+            }
+
+            // ---------------------------------------------------------------------------------
+
+            // normalizing each transition state's counts to probabilities
+            for (String i : transitionMap.keySet()) {
+                double sum = 0;
+                for (String i2 : transitionMap.get(i).keySet()) {
+                    sum += transitionMap.get(i).get(i2);
+                }
+                for (String i2 : transitionMap.get(i).keySet()) {
+                    transitionMap.get(i).put(i2, Math.log(transitionMap.get(i).get(i2) / sum));
+                }
+            }
+            Metrics.endPhase("normalize", started);
+
+            // publish the finished maps; decoders that already hold the old snapshot keep using it
+            snapshot = new ModelSnapshot(observationMap, transitionMap);
+        }
+        catch (IOException exception) {
+            System.out.println("Sorry, this does not work. Here is the error: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * trains Sudi like trainSudi, but counts the files with primitive counters and normalizes the merged counts once;
+     * the resulting log-probabilities are exactly those of trainSudi. One thread reads and counts the files in place as
+     * bytes; more threads split the counting through ParallelTrainer
+     * @param textFileWords the text file containing the actual sentences and words
+     * @param textFilePOS the text file containing the POS states
+     * @param parallelism number of counting threads
+     * @throws IOException
+     */
+    public void trainSudi(String textFileWords, String textFilePOS, int parallelism) throws IOException {
+        try {
+            TrainingCounts counts = parallelism == 1
+                    ? TrainingCounts.count(Paths.get(textFileWords), Paths.get(textFilePOS))
+                    : ParallelTrainer.count(textFileWords, textFilePOS, parallelism);
+            long started = Metrics.startPhase();
+            Map<String, Map<String, Double>> observationMap = counts.observationLogProbs();
+            Map<String, Map<String, Double>> transitionMap = counts.transitionLogProbs();
+            Metrics.endPhase("normalize", started);
+            snapshot = new ModelSnapshot(observationMap, transitionMap);
+        }
+        catch (IOException exception) {
+            System.out.println("Sorry, this does not work. Here is the error: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * goes through every sentence in the sentencesFile and then calls the actual viterbi
+     * algorithm (viterbiHelper) to execute the function
+     * @param sentencesFile the text file of sentences
+     * @return Array list of sequence of tags for a line as found through viterbi decoding, for every line in file
+     * @throws IOException
+     */
+    public ArrayList viterbi(String sentencesFile) throws IOException {
+        ArrayList<ArrayList<String>> returnList = new ArrayList<>();
+        Decoder decoder = decoder(); // the whole file is tagged with one model, even if Sudi is retrained meanwhile
+        TagCache tagCache = cache;
+
+        try {
+            BufferedReader sentences = new BufferedReader(new FileReader(sentencesFile));
+
+            String sentenceLine = sentences.readLine();
+            while (sentenceLine != null) {
+                sentenceLine.toLowerCase();
+                String[] splitLine = sentenceLine.split(" ");
+                returnList.add(tagCache == null ? decoder.viterbiHelper(splitLine) : tagCache.tag(decoder, splitLine));
+                sentenceLine = sentences.readLine();
+            }
+        }
+        catch (IOException exception){
+            System.out.println("Sorry, this does not work. Here is the error: " + exception.getMessage());
+        }
+        return returnList;
+    }
+
+    /**
+     * compiles the trained maps into an immutable, array-backed model for faster decoding; the result is kept until
+     * the maps change
+     * @return the compiled model
+     */
+    public CompiledModel compile() {
+        return snapshot.compiled();
+    }
+
+    /**
+     * @return the current trained model; it never changes, retraining replaces it
+     */
+    public ModelSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * turns on caching of tagged sentences for viterbiHelper, viterbi and consoleTest; the cache clears itself when
+     * the model is retrained
+     * @param tagCache the cache to use, or null to turn caching off
+     */
+    public void useCache(TagCache tagCache) {
+        cache = tagCache;
+    }
+
+    /**
+     * @return a decoding handle bound to the current trained model, safe to use from any thread
+     */
+    public Decoder decoder() {
+        return new Decoder(snapshot);
+    }
+
+    /**
+     * same as viterbi, but decodes the sentences in parallel with the compiled model
+     * @param sentencesFile the text file of sentences
+     * @param parallelism number of threads to decode with
+     * @return Array list of sequence of tags for a line as found through viterbi decoding, for every line in file,
+     *         in file order
+     * @throws IOException
+     */
+    public ArrayList<ArrayList<String>> viterbi(String sentencesFile, int parallelism) throws IOException {
+        ArrayList<String[]> splitLines = new ArrayList<>();
+
+        try {
+            BufferedReader sentences = new BufferedReader(new FileReader(sentencesFile));
+
+            String sentenceLine = sentences.readLine();
+            while (sentenceLine != null) {
+                splitLines.add(sentenceLine.split(" "));
+                sentenceLine = sentences.readLine();
+            }
+            sentences.close();
+        }
+        catch (IOException exception){
+            System.out.println("Sorry, this does not work. Here is the error: " + exception.getMessage());
+        }
+
+        try (BatchTagger batchTagger = new BatchTagger(compile(), parallelism)) {
+            return batchTagger.tagAll(splitLines);
+        }
+    }
+
+    /**
+     * same as viterbi, but decodes every sentence with the compiled model instead of the maps; the file is read as
+     * UTF-8 bytes and its tokens are looked up in place, without a String per token
+     * @param sentencesFile the text file of sentences
+     * @return Array list of sequence of tags for a line as found through viterbi decoding, for every line in file
+     * @throws IOException
+     */
+    public ArrayList<ArrayList<String>> viterbiCompiled(String sentencesFile) throws IOException {
+        ArrayList<ArrayList<String>> returnList = new ArrayList<>();
+        CompiledModel model = compile();
+
+        try (CorpusReader sentences = new CorpusReader(Paths.get(sentencesFile))) {
+            ByteVocabulary vocabulary = new ByteVocabulary(model::wordId);
+            ViterbiScratch scratch = ViterbiScratch.forCurrentThread();
+            int[] wordIds = new int[64];
+            while (sentences.nextLine()) {
+                wordIds = sentences.ids(vocabulary, wordIds);
+                returnList.add(model.tag(wordIds, sentences.tokenCount(), scratch, Pruning.EXACT));
+            }
+        }
+        catch (IOException exception){
+            System.out.println("Sorry, this does not work. Here is the error: " + exception.getMessage());
+        }
+        return returnList;
+    }
+
+    /**
+     * decodes the sentences in parallel and writes the tags of each line to tagsOutputFile as soon as they are ready,
+     * instead of collecting every line in memory
+     * @param sentencesFile the text file of sentences
+     * @param tagsOutputFile the text file to write one line of tags per sentence to
+     * @param parallelism number of threads to decode with
+     * @return number of sentences tagged
+     * @throws IOException
+     */
+    public long viterbi(String sentencesFile, String tagsOutputFile, int parallelism) throws IOException {
+        try (StreamingTagger streamingTagger = new StreamingTagger(compile(), parallelism)) {
+            return streamingTagger.tag(Paths.get(sentencesFile), Paths.get(tagsOutputFile));
+        }
+    }
+
+    /**
+     * compares exact decoding with pruned decoding on a pair of test files
+     * @param sentencesFile source for file that will be read/tested on
+     * @param tagsFile source for file that contains actual tags for sentencesFile
+     * @param settings the pruning settings to compare against exact decoding
+     * @return one line per setting with tokens/sec, agreement with exact decoding and accuracy
+     * @throws IOException
+     */
+    public String comparePruning(String sentencesFile, String tagsFile, Pruning... settings) throws IOException {
+        ArrayList<String[]> splitSentences = new ArrayList<>();
+        ArrayList<String[]> splitTags = new ArrayList<>();
+
+        try {
+            BufferedReader sentences = new BufferedReader(new FileReader(sentencesFile));
+            BufferedReader tagsReader = new BufferedReader(new FileReader(tagsFile));
+            String sentenceLine = sentences.readLine();
+            String tagLine = tagsReader.readLine();
+            while (sentenceLine != null && tagLine != null) {
+                splitSentences.add(sentenceLine.split(" "));
+                splitTags.add(tagLine.split(" "));
+                sentenceLine = sentences.readLine();
+                tagLine = tagsReader.readLine();
+            }
+            sentences.close();
+            tagsReader.close();
+        }
+        catch (IOException exception) {
+            System.out.println("Sorry, this does not work. Here is the error: " + exception.getMessage());
+        }
+        return PruningReport.compare(compile(), splitSentences, splitTags, settings);
+    }
+
+    /**
+     * executes the actual viterbi algorithm using current states, current scores, backtracking, next states, next scores, etc.
+     * @param sentence an Array String that contains words
+     * @return Array list of sequence of tags for a line as found through viterbi decoding
+     */
+
+    public ArrayList<String> viterbiHelper(String[] sentence) {
+        TagCache tagCache = cache;
+        return tagCache == null ? viterbiHelper(snapshot, sentence) : tagCache.tag(decoder(), sentence);
+    }
+
+    /**
+     * viterbiHelper against a given trained model; reads the model only, so any number of threads can run it at once
+     * @param model the trained maps to decode with
+     * @param sentence an Array String that contains words
+     * @return Array list of sequence of tags for a line as found through viterbi decoding
+     */
+    static ArrayList<String> viterbiHelper(ModelSnapshot model, String[] sentence) {
+        return viterbiHelper(model, sentence, model::emissions);
+    }
+
+    /**
+     * viterbiHelper with a given source of emission vectors, such as a TagCache
+     * @param model the trained maps to decode with
+     * @param sentence an Array String that contains words
+     * @param emissions gives the emission vector of a word, Map<POS, log-prob>, as ModelSnapshot.emissions does
+     * @return Array list of sequence of tags for a line as found through viterbi decoding
+     */
+    static ArrayList<String> viterbiHelper(ModelSnapshot model, String[] sentence,
+                                           Function<String, Map<String, Double>> emissions) {
+        Map<String, Map<String, Double>> transitionMap = model.transitionMap();
+        TaggerMetrics metrics = Metrics.current();
+        long started = metrics == TaggerMetrics.NOOP ? 0 : System.nanoTime();
+        long statesExpanded = 0;
+        // emission vector of every word, kept for the metrics so no word is looked up twice
+        ArrayList<Map<String, Double>> lookedUp = metrics == TaggerMetrics.NOOP ? null : new ArrayList<>();
+
+        // create the currStates and currScores HashSet and HashMap
+        HashSet<String> currStates = new HashSet<>();
+        HashMap<String, Double> currScores = new HashMap<>();
+
+        // create the backtrack list of Maps and the backtrackReturnList of Strings
+        ArrayList<Map<String, String>> backtrack = new ArrayList<>();
+        ArrayList<String> backtrackReturnList = new ArrayList<>();
+
+        // create the map that will hold the last scores of the viterbi algorithm
+        HashMap<String, Double> finalNextScores = new HashMap<>();
+
+        // initialize currStates and currScores with #
+        currStates.add("#");
+        currScores.put("#", 0.0);
+
+        // ---------------------------------------------------------------------------------
+        // iterate through the entire sentence
+
+        for (int i = 0; i < sentence.length; i++) {
+            // create the backtrackInnerMap that will then be added to the backtrack arrayList
+            HashMap<String, String> backtrackInnerMap = new HashMap<>();
+            backtrack.add(backtrackInnerMap);
+
+            // create the nextStates and nextScores HashSet and HashMap
+            HashSet<String> nextStates = new HashSet<>();
+            HashMap<String, Double> nextScores = new HashMap<>();
+
+            // look up the word once for all states instead of once per transition
+            Map<String, Double> wordEmissions = emissions.apply(sentence[i]);
+            if (lookedUp != null) {
+                lookedUp.add(wordEmissions);
+            }
+            statesExpanded += currStates.size();
+
+            // for each currState in currStates
+            for (String currState : currStates) {
+
+                // for each nextState in the transition map for the current state
+                if (transitionMap.get(currState) != null) {
+                    for (String nextState : transitionMap.get(currState).keySet()) {
+
+                        // add nextState to the nextStates Hash Set
+                        nextStates.add(nextState);
+                        // initialize the observation score
+                        double observationScore;
+
+                        // get the observation score depending on whether or not the word has been observed
+                        // in the specific state in the observation map
+                        Double observed = wordEmissions.get(nextState);
+                        if (observed != null) {
+                            observationScore = observed;
+                        } else {
+                            observationScore = -100.0;
+                        }
+
+                        // create the nextScore
+                        double nextScore = currScores.get(currState) + transitionMap.get(currState).get(nextState) + observationScore;
+                        // if there is no score for the state or if nextScore is bigger than the current score in that state
+                        if (!nextScores.containsKey(nextState) || nextScore > nextScores.get(nextState)) {
+                            nextScores.put(nextState, nextScore);
+                            backtrack.get(i).put(nextState, currState);
+                        }
+                    }
+                }
+            }
+            currStates = nextStates;
+            currScores = nextScores;
+            finalNextScores = nextScores;
+        }
+
+        // ---------------------------------------------------------------------------------
+
+        // find the largest number in the final map of scores
+        // we will use this for backtracking purposes
+        double maxNum = Double.NEGATIVE_INFINITY;
+        for (String i : finalNextScores.keySet()) {
+            if (finalNextScores.get(i) > maxNum) {
+                maxNum = finalNextScores.get(i);
+            }
+        }
+
+        // ---------------------------------------------------------------------------------
+
+        int backtrackIndex = backtrack.size()-1;
+        String lastPOS = "";
+
+        // use the maxNum to add the last, greatest POS to the backtrackReturnList
+        for (String i3 : backtrack.get(backtrackIndex).keySet()) {
+            if (finalNextScores.get(i3) == maxNum){
+                lastPOS = i3;
+                backtrackReturnList.add(lastPOS);
+                break;
+            }
+        }
+
+        // start at the last map of POS's
+        backtrackIndex = backtrack.size() - 1;
+        // use the previous lastPOS to get the currentPOS (newLastPOS) to add to the backtrackReturnList
+        while (backtrackIndex > 0) {
+            String newLastPOS = backtrack.get(backtrackIndex).get(lastPOS);
+            if (!Objects.equals(lastPOS, "#")) {
+                backtrackReturnList.add(0, newLastPOS);
+            }
+            lastPOS = newLastPOS;
+            backtrackIndex--;
+        }
+
+        if (metrics != TaggerMetrics.NOOP) {
+            long nanos = System.nanoTime() - started;
+            // an unknown word has no emissions at all; a penalized one was never emitted by its chosen tag
+            int unknownWords = 0;
+            int penalizedWords = 0;
+            for (int i = 0; i < sentence.length; i++) {
+                Map<String, Double> wordEmissions = lookedUp.get(i);
+                if (wordEmissions.isEmpty()) {
+                    unknownWords++;
+                }
+                if (i >= backtrackReturnList.size() || !wordEmissions.containsKey(backtrackReturnList.get(i))) {
+                    penalizedWords++;
+                }
+            }
+            metrics.sentenceDecoded(sentence.length, unknownWords, penalizedWords, statesExpanded, nanos);
+        }
+        return backtrackReturnList;
+    }
+
+    /**
+     * hardcodes parts of speech model from PD_HMM.pdf (drill 7)
+     */
+    public void test0(){
+        Map<String, Map<String, Double>> observationMap = new HashMap<>();
+        Map<String, Map<String, Double>> transitionMap = new HashMap<>();
+        // hardcode observation map
+        observationMap.put("NP", new HashMap<>());
+        observationMap.get("NP").put("chase", Math.log(10));
+        observationMap.put("CNJ", new HashMap<>());
+        observationMap.get("CNJ").put("and", Math.log(10));
+        observationMap.put("V", new HashMap<>());
+        observationMap.get("V").put("chase", Math.log(3));
+        observationMap.get("V").put("get", Math.log(1));
+        observationMap.get("V").put("watch", Math.log(6));
+        observationMap.put("N", new HashMap<>());
+        observationMap.get("N").put("cat", Math.log(4));
+        observationMap.get("N").put("dog", Math.log(4));
+        observationMap.get("N").put("watch", Math.log(2));
+        // hardcode transition map
+        transitionMap.put("#", new HashMap<>());
+        transitionMap.get("#").put("NP", Math.log(3));
+        transitionMap.get("#").put("N", Math.log(7));
+        transitionMap.put("NP", new HashMap<>());
+        transitionMap.get("NP").put("V", Math.log(8));
+        transitionMap.get("NP").put("CNJ", Math.log(2));
+        transitionMap.put("CNJ", new HashMap<>());
+        transitionMap.get("CNJ").put("NP", Math.log(2));
+        transitionMap.get("CNJ").put("V", Math.log(4));
+        transitionMap.get("CNJ").put("N", Math.log(4));
+        transitionMap.put("V", new HashMap<>());
+        transitionMap.get("V").put("NP", Math.log(4));
+        transitionMap.get("V").put("CNJ", Math.log(2));
+        transitionMap.get("V").put("N", Math.log(4));
+        transitionMap.put("N", new HashMap<>());
+        transitionMap.get("N").put("CNJ", Math.log(2));
+        transitionMap.get("N").put("V", Math.log(8));
+        snapshot = new ModelSnapshot(observationMap, transitionMap);
+    }
+
+    /**
+     * allows for user to input a line to test for its POS tags
+     */
+    public void consoleTest() throws Exception {
+
+        try {
+            Scanner in = new Scanner(System.in);
+            System.out.println("Please input a sentence. Enter 'q' at any time to quit.");
+            String line = in.nextLine().toLowerCase(); // takes in input from scanner
+            while (!line.equals("q")) {
+                String[] sentence = line.split(" ");
+                System.out.println(viterbiHelper(sentence) + "\n");
+                line = in.nextLine().toLowerCase(); // takes in input from scanner
+            }
+            in.close();
+        }
+        catch (Exception exception) {
+            System.out.println("Sorry, this does not work. Here is the error: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * same as consoleTest, but tags with a compiled model, such as one loaded from a model file, so nothing has to be
+     * trained first
+     * @param model the compiled model to tag with
+     */
+    public static void consoleTest(CompiledModel model) throws Exception {
+
+        try {
+            Scanner in = new Scanner(System.in);
+            System.out.println("Please input a sentence. Enter 'q' at any time to quit.");
+            String line = in.nextLine().toLowerCase(); // takes in input from scanner
+            while (!line.equals("q")) {
+                String[] sentence = line.split(" ");
+                System.out.println(model.tag(sentence) + "\n");
+                line = in.nextLine().toLowerCase(); // takes in input from scanner
+            }
+            in.close();
+        }
+        catch (Exception exception) {
+            System.out.println("Sorry, this does not work. Here is the error: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * saves the compiled model to a binary model file, which ModelFile.load maps back in without retraining
+     * @param modelFile the file to write
+     * @throws IOException
+     */
+    public void saveModel(String modelFile) throws IOException {
+        ModelFile.save(compile(), Paths.get(modelFile));
+    }
+    /**
+     * evaluates the performance on a pair of test files by comparing calculated POS tags to actual POS tags
+     * @param sentencesFile source for file that will be read/tested on
+     * @param tagsFile source for file that contains actual tags for sentencesFile
+     * @param findByLine determines whether or not user wants to receive line-by-line accuracy comments; beneficial
+     *                   to keep on with a smaller file, but takes up time and space with larger file
+     * @return String of correct tag predictions out of total tags in file, expressed both as a percentage and an
+     *                   unsimplified fraction
+     * @throws IOException
+     */
+
+    public String findAccuracy(String sentencesFile, String tagsFile, boolean findByLine) throws IOException {
+        return findAccuracy(sentencesFile, tagsFile, findByLine, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * same as findAccuracy, with a chosen number of threads for decoding the sentences
+     * @param sentencesFile source for file that will be read/tested on
+     * @param tagsFile source for file that contains actual tags for sentencesFile
+     * @param findByLine determines whether or not user wants to receive line-by-line accuracy comments
+     * @param parallelism number of threads to decode with
+     * @return String of correct tag predictions out of total tags in file, expressed both as a percentage and an
+     *                   unsimplified fraction
+     * @throws IOException
+     */
+    public String findAccuracy(String sentencesFile, String tagsFile, boolean findByLine, int parallelism)
+            throws IOException {
+        if (parallelism == 1) {
+            return findAccuracyInPlace(sentencesFile, tagsFile, findByLine);
+        }
+
+        // decode and compare line by line, so neither file is ever held in memory; both are read as UTF-8 and must
+        // have the same number of lines, as findAccuracyInPlace requires
+        try (BufferedReader sentences = Files.newBufferedReader(Paths.get(sentencesFile), StandardCharsets.UTF_8);
+             BufferedReader tagsReader = Files.newBufferedReader(Paths.get(tagsFile), StandardCharsets.UTF_8);
+             StreamingTagger streamingTagger = new StreamingTagger(compile(), parallelism)) {
+            int[] counts = new int[3]; // correct tag predictions, total tags in entire file, and lines compared
+            streamingTagger.tag(sentences, (words, calculatedTags) -> {
+                String tagLine = tagsReader.readLine(); // get line from real tags file
+                if (tagLine == null) {
+                    throw new IOException(tagsFile + " ends after line " + counts[2] + ", but " + sentencesFile
+                            + " goes on");
+                }
+                counts[2]++;
+                int lineCorrect = 0; // keeps track of correct tag predictions in line
+                int lineTotal = 0; // keeps track of total tags in line
+                String[] splitTagLine = tagLine.split(" "); // creates array of actual tags for each line
+                for (int i = 0; i < Math.min(calculatedTags.size(), splitTagLine.length); i++) {
+                    if (splitTagLine[i].equals(calculatedTags.get(i))) {
+                        lineCorrect++;
+                    }
+                    lineTotal++;
+                }
+                if (findByLine) {
+                    System.out.println(lineCorrect + " correct tags out of " + lineTotal + " tags in this line, " +
+                            "for a percentage of " + ((double) lineCorrect / lineTotal) * 100 + "%");
+                }
+                counts[0] += lineCorrect;
+                counts[1] += lineTotal;
+            });
+            if (tagsReader.readLine() != null) {
+                throw new IOException(sentencesFile + " ends after line " + counts[2] + ", but " + tagsFile
+                        + " goes on");
+            }
+            return counts[0] + " correct tags out of " + counts[1] + " tags in this file, for a percentage of " +
+                    ((double) counts[0] / counts[1]) * 100 + "%\n";
+        }
+        catch (IOException exception) {
+            System.out.println("Sorry, this does not work. Here is the error: " + exception.getMessage());
+        }
+
+        return "";
+
+    }
+
+    /**
+     * findAccuracy on the calling thread, reading both files in lockstep as UTF-8 bytes and comparing tag IDs, so no
+     * String is made per token
+     */
+    private String findAccuracyInPlace(String sentencesFile, String tagsFile, boolean findByLine) {
+        CompiledModel model = compile();
+        ViterbiScratch scratch = ViterbiScratch.forCurrentThread();
+
+        try (TaggedCorpus corpus = new TaggedCorpus(Paths.get(sentencesFile), Paths.get(tagsFile), model::wordId,
+                model::tagId, false)) {
+            int correct = 0; // correct tag predictions in entire file
+            int total = 0; // total tags in entire file
+            while (corpus.next()) {
+                int length = corpus.wordCount();
+                scratch.ensureCapacity(length, model.numTags());
+                model.decodeInto(corpus.wordIds(), length, scratch, Pruning.EXACT);
+                int lineCorrect = 0; // keeps track of correct tag predictions in line
+                int lineTotal = 0; // keeps track of total tags in line
+                for (int i = 0; i < Math.min(length, corpus.tagCount()); i++) {
+                    // tags the model never saw have ID -1, which no decoded tag has
+                    if (scratch.path[i] >= 0 && scratch.path[i] == corpus.tagIds()[i]) {
+                        lineCorrect++;
+                    }
+                    lineTotal++;
+                }
+                if (findByLine) {
+                    System.out.println(lineCorrect + " correct tags out of " + lineTotal + " tags in this line, " +
+                            "for a percentage of " + ((double) lineCorrect / lineTotal) * 100 + "%");
+                }
+                correct += lineCorrect;
+                total += lineTotal;
+            }
+            return correct + " correct tags out of " + total + " tags in this file, for a percentage of " +
+                    ((double) correct / total) * 100 + "%\n";
+        }
+        catch (IOException exception) {
+            System.out.println("Sorry, this does not work. Here is the error: " + exception.getMessage());
+        }
+
+        return "";
+    }
+    public static void main(String[] args) throws Exception {
+
+        // All Brown corpus-related files
+        String sentencesTestBrown = "texts/brown-test-sentences.txt";
+        String tagsTestBrown = "texts/brown-test-tags.txt";
+        String sentencesTrainBrown = "texts/brown-train-sentences.txt";
+        String tagsTrainBrown = "texts/brown-train-tags.txt";
+
+        // All "example" files
+        String sentencesExample = "texts/example-sentences.txt";
+        String tagsExample = "texts/example-tags.txt";
+
+        // All "simple" files
+        String sentencesTestSimple = "texts/simple-test-sentences.txt";
+        String tagsTestSimple = "texts/simple-test-tags.txt";
+        String sentencesTrainSimple = "texts/simple-train-sentences.txt";
+        String tagsTrainSimple = "texts/simple-train-tags.txt";
+
+        // Test hardcoded case from drill
+        Sudi testCase0 = new Sudi();
+        testCase0.test0();
+        String[] drillArray1 = new String [] {"dog", "and", "cat", "chase"};
+        String[] drillArray2 = new String [] {"chase", "watch", "cat"};
+        String[] drillArray3 = new String [] {"watch", "get", "chase", "and", "dog"};
+        // Since these hard coded sentences do not come from a file, must format them as a String array. Although
+        // accuracy method is not run for this test case, a manual check will show that the algorithm guesses the POS
+        // tag with complete accuracy.
+        System.out.println(testCase0.viterbiHelper(drillArray1));
+        System.out.println(testCase0.viterbiHelper(drillArray2));
+        System.out.println(testCase0.viterbiHelper(drillArray3));
+        // in steady state the compiled decoder should allocate little more than the returned array
+        CompiledModel drillModel = testCase0.compile();
+        int[] drillIds = drillModel.encode(drillArray3);
+        System.out.println("Bytes allocated per compiled decode: " +
+                Allocations.bytesPerRun(() -> drillModel.decode(drillIds), 10000));
+
+        // "Example" files test; trains from the same file that it reads from, and thus will score well on accuracy.
+        // Test case only used to show that methods work.
+        Sudi test1 = new Sudi(sentencesExample, tagsExample);
+        System.out.println("\n"+test1.viterbi(sentencesExample));
+        System.out.println("\n"+test1.findAccuracy(sentencesExample, tagsExample, true));
+
+        // Brown corpus test, measured; the stats are also visible over JMX while main runs
+        TaggerStats brownStats = TaggerStats.installAndRegister();
+        Sudi test2 = new Sudi(sentencesTrainBrown, tagsTrainBrown);
+        System.out.println("\n"+test2.viterbi(sentencesTestBrown));
+        System.out.println("\n"+test2.findAccuracy(sentencesTestBrown, tagsTestBrown, false));
+        // compiled model must tag the Brown test set exactly like the maps do
+        System.out.println("\nCompiled model matches map decoding: " +
+                test2.viterbiCompiled(sentencesTestBrown).equals(test2.viterbi(sentencesTestBrown)));
+        // and on a sentence no tag sequence gets through: DET has no successors, so the lattice ends at the first word
+        Map<String, Map<String, Double>> deadEndTransitions = new HashMap<>();
+        deadEndTransitions.put("#", new HashMap<>());
+        deadEndTransitions.get("#").put("DET", 0.0);
+        Decoder deadEnd = new Decoder(new ModelSnapshot(new HashMap<>(), deadEndTransitions));
+        String[] deadEndSentence = new String[] {"unknown", "word", "here"};
+        System.out.println("Compiled model matches map decoding on a dead end: " +
+                deadEnd.tag(deadEndSentence).equals(deadEnd.viterbiHelper(deadEndSentence)));
+        // the vector max-plus kernel, when this JVM can run it, must tag exactly like the scalar one
+        if (MaxPlus.vectorAvailable()) {
+            MaxPlus.useVector(false);
+            ArrayList<ArrayList<String>> scalarTags = test2.viterbiCompiled(sentencesTestBrown);
+            MaxPlus.useVector(true);
+            System.out.println("\nVector kernel matches scalar kernel: " +
+                    test2.viterbiCompiled(sentencesTestBrown).equals(scalarTags));
+        }
+        // speed against accuracy of pruned decoding
+        System.out.println("\n" + test2.comparePruning(sentencesTestBrown, tagsTestBrown,
+                Pruning.EXACT.skipImpossibleEmissions(true),
+                Pruning.EXACT.beamWidth(10), Pruning.EXACT.beamWidth(5), Pruning.EXACT.beamWidth(2),
+                Pruning.EXACT.margin(20.0), Pruning.EXACT.beamWidth(5).skipImpossibleEmissions(true)));
+        // cached tagging must match uncached tagging; the second pass over the test set should be all hits
+        @SuppressWarnings("unchecked")
+        ArrayList<ArrayList<String>> uncached = test2.viterbi(sentencesTestBrown);
+        TagCache brownCache = new TagCache(1_000_000, 20_000);
+        test2.useCache(brownCache);
+        test2.viterbi(sentencesTestBrown);
+        System.out.println("\nCached tagging matches uncached tagging: " +
+                test2.viterbi(sentencesTestBrown).equals(uncached));
+        System.out.println(brownCache);
+        test2.useCache(null);
+        // second-order model of the same training files, against the first-order accuracy above
+        TrigramModel brownTrigrams = TrigramModel.train(Paths.get(sentencesTrainBrown), Paths.get(tagsTrainBrown));
+        System.out.println("\nTrigram model, lambdas " + Arrays.toString(brownTrigrams.lambdas()) + ": " +
+                brownTrigrams.findAccuracy(sentencesTestBrown, tagsTestBrown));
+        System.out.println("\n" + brownStats.report());
+        Metrics.install(TaggerMetrics.NOOP);
+
+        // "Simple" files test
+        Sudi test3 = new Sudi(sentencesTrainSimple, tagsTrainSimple);
+        System.out.println(test3.viterbi(sentencesTestSimple));
+        System.out.println(test3.findAccuracy(sentencesTestSimple, tagsTestSimple, true));
+        
+        // Console test; maps the Brown model saved from test2 instead of training on the Brown corpus a second time
+        String modelBrown = "texts/brown.model";
+        test2.saveModel(modelBrown);
+        consoleTest(ModelFile.load(Paths.get(modelBrown)));
+    }
+}
\ No newline at end of file
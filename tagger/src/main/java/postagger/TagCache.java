@@ -0,0 +1,171 @@
+package postagger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Optional cache for taggers that see the same short inputs over and over. It keeps two bounded LRU caches:
+ * whole-sentence tag results keyed by the token sequence, weighed by sentence length, and, for map decoding, the
+ * emission vector of recently seen words, so each word is looked up once per state instead of once per transition.
+ *
+ * Cached results belong to exactly one model. Models never change, so the cache remembers the model it was filled
+ * from and clears itself the first time it is asked about a different one, e.g. after Sudi was retrained. Compiled
+ * models already keep an emission column per word, so only sentences are cached for them.
+ **/
+
+public final class TagCache {
+    private final LruCache<Key, String[]> sentences; // token sequence -> tags
+    private final LruCache<String, Map<String, Double>> emissions; // word -> Map<POS, log-prob>, map decoding only
+    private Object model; // the ModelSnapshot or CompiledModel every cached entry came from; guarded by this
+    private long invalidations; // guarded by this
+
+    /**
+     * @param maxTokens total length of the sentences to keep results for
+     * @param maxWords number of words to keep emission vectors for
+     */
+    public TagCache(long maxTokens, long maxWords) {
+        sentences = new LruCache<>(maxTokens, tags -> tags.length);
+        emissions = new LruCache<>(maxWords);
+    }
+
+    /**
+     * tags a sentence with the map decoder of a handle, or returns the cached tags
+     * @param decoder handle of the model to tag with
+     * @param sentence an Array String that contains words
+     * @return Array list of sequence of tags for a line as found through viterbi decoding
+     */
+    public ArrayList<String> tag(Decoder decoder, String[] sentence) {
+        ModelSnapshot snapshot = decoder.snapshot();
+        String[] tags = cachedTags(snapshot, sentence);
+        if (tags != null) {
+            return toList(tags);
+        }
+        ArrayList<String> result = Sudi.viterbiHelper(snapshot, sentence, word -> emissions(snapshot, word));
+        store(snapshot, sentence, result);
+        return result;
+    }
+
+    /**
+     * tags a sentence with a compiled model, or returns the cached tags
+     * @param compiled the model to tag with
+     * @param sentence an Array String that contains words
+     * @return Array list of sequence of tags for a line as found through viterbi decoding
+     */
+    public ArrayList<String> tag(CompiledModel compiled, String[] sentence) {
+        String[] tags = cachedTags(compiled, sentence);
+        if (tags != null) {
+            return toList(tags);
+        }
+        ArrayList<String> result = compiled.tag(sentence);
+        store(compiled, sentence, result);
+        return result;
+    }
+
+    /**
+     * @return the whole-sentence cache, for its hit and miss counts
+     */
+    public LruCache<?, ?> sentences() {
+        return sentences;
+    }
+
+    /**
+     * @return the emission vector cache, for its hit and miss counts
+     */
+    public LruCache<?, ?> emissions() {
+        return emissions;
+    }
+
+    /**
+     * @return how often the cache was cleared because it was asked about a different model
+     */
+    public synchronized long invalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public String toString() {
+        return "sentences: " + sentences + "\nemissions: " + emissions + "\ninvalidations: " + invalidations();
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    private synchronized String[] cachedTags(Object forModel, String[] sentence) {
+        useModel(forModel);
+        return sentences.get(new Key(sentence));
+    }
+
+    /**
+     * caches a result, unless the cache has moved on to another model while it was being decoded
+     */
+    private synchronized void store(Object forModel, String[] sentence, ArrayList<String> tags) {
+        if (model == forModel) {
+            sentences.put(new Key(sentence.clone()), tags.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * emission vector of a word from the cache, if the cache still holds entries of snapshot; otherwise computed
+     */
+    private Map<String, Double> emissions(ModelSnapshot snapshot, String word) {
+        synchronized (this) {
+            if (model == snapshot) {
+                Map<String, Double> vector = emissions.get(word);
+                if (vector != null) {
+                    return vector;
+                }
+            }
+        }
+        Map<String, Double> vector = snapshot.emissions(word);
+        synchronized (this) {
+            if (model == snapshot) {
+                emissions.put(word, vector);
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * makes forModel the model of every cached entry, dropping the entries of the previous one
+     */
+    private void useModel(Object forModel) {
+        if (model != forModel) {
+            if (model != null) {
+                invalidations++;
+            }
+            model = forModel;
+            sentences.clear();
+            emissions.clear();
+        }
+    }
+
+    private static ArrayList<String> toList(String[] tags) {
+        ArrayList<String> list = new ArrayList<>(tags.length);
+        Collections.addAll(list, tags);
+        return list;
+    }
+
+    /**
+     * token sequence used as a cache key; compares the tokens, not the array
+     */
+    private static final class Key {
+        private final String[] tokens;
+        private final int hash;
+
+        Key(String[] tokens) {
+            this.tokens = tokens;
+            this.hash = Arrays.hashCode(tokens);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && hash == ((Key) other).hash && Arrays.equals(tokens, ((Key) other).tokens);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package postagger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.file.Path;
+import java.util.function.ToIntFunction;
+
+/**
+ * Reads a words file and its tags file in lockstep through two CorpusReaders and gives every line as word IDs and tag
+ * IDs. Each distinct token is resolved to an ID once; after that, lines are looked up straight from the read buffers.
+ **/
+
+final class TaggedCorpus implements Closeable {
+    private final CorpusReader words;
+    private final CorpusReader tags;
+    private final ToIntFunction<String> wordResolver;
+    private final ToIntFunction<String> tagResolver;
+    private final ByteVocabulary wordVocabulary;
+    private final ByteVocabulary tagVocabulary;
+    private final boolean lowerCaseFirstLine;
+    private int[] wordIds = new int[64];
+    private int[] tagIds = new int[64];
+
+    /**
+     * @param wordsFile the text file containing the actual sentences and words
+     * @param tagsFile the text file containing the POS states
+     * @param wordResolver gives the ID of a word the first time it is seen
+     * @param tagResolver gives the ID of a tag the first time it is seen
+     * @param lowerCaseFirstLine lower-case the first line of both files, as trainSudi does
+     * @throws IOException if a file cannot be opened
+     */
+    TaggedCorpus(Path wordsFile, Path tagsFile, ToIntFunction<String> wordResolver, ToIntFunction<String> tagResolver,
+                 boolean lowerCaseFirstLine) throws IOException {
+        this.words = new CorpusReader(wordsFile);
+        try {
+            this.tags = new CorpusReader(tagsFile);
+        }
+        catch (IOException exception) {
+            words.close();
+            throw exception;
+        }
+        this.wordResolver = wordResolver;
+        this.tagResolver = tagResolver;
+        this.wordVocabulary = new ByteVocabulary(wordResolver);
+        this.tagVocabulary = new ByteVocabulary(tagResolver);
+        this.lowerCaseFirstLine = lowerCaseFirstLine;
+    }
+
+    /**
+     * moves both files to their next line and looks up its tokens
+     * @return false once both files have ended
+     * @throws IOException if a file cannot be read or is not valid UTF-8, or one file has more lines than the other
+     */
+    boolean next() throws IOException {
+        boolean hasWords = words.nextLine();
+        boolean hasTags = tags.nextLine();
+        if (hasWords != hasTags) {
+            CorpusReader ended = hasWords ? tags : words;
+            throw new IOException(ended.file() + " ends after line " + ended.lineNumber() + ", but "
+                    + (hasWords ? words : tags).file() + " goes on");
+        }
+        if (!hasWords) {
+            return false;
+        }
+        if (lowerCaseFirstLine && words.lineNumber() == 1) {
+            wordIds = lowerCasedIds(words, wordResolver, wordIds);
+            tagIds = lowerCasedIds(tags, tagResolver, tagIds);
+        }
+        else {
+            wordIds = words.ids(wordVocabulary, wordIds);
+            tagIds = tags.ids(tagVocabulary, tagIds);
+        }
+        return true;
+    }
+
+    /**
+     * @return 1-based number of the current line
+     */
+    long lineNumber() {
+        return words.lineNumber();
+    }
+
+    /**
+     * @return word IDs of the current line; only the first wordCount() are used
+     */
+    int[] wordIds() {
+        return wordIds;
+    }
+
+    int wordCount() {
+        return words.tokenCount();
+    }
+
+    /**
+     * @return tag IDs of the current line; only the first tagCount() are used
+     */
+    int[] tagIds() {
+        return tagIds;
+    }
+
+    int tagCount() {
+        return tags.tokenCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            words.close();
+        }
+        finally {
+            tags.close();
+        }
+    }
+
+    /**
+     * resolves the tokens of the current line through Strings, lower-cased; lower-casing is not a byte-for-byte
+     * mapping in UTF-8, and it is only needed for one line
+     */
+    private static int[] lowerCasedIds(CorpusReader reader, ToIntFunction<String> resolver, int[] ids)
+            throws CharacterCodingException {
+        if (ids.length < reader.tokenCount()) {
+            ids = new int[reader.tokenCount()];
+        }
+        for (int token = 0; token < reader.tokenCount(); token++) {
+            ids[token] = resolver.applyAsInt(reader.token(token).toLowerCase());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,37 @@
+package postagger;
+
+/**
+ * Receives measurements from the hot paths of training and decoding. Install an implementation with
+ * Metrics.install; every method does nothing by default, and while NOOP is installed the hot paths skip measuring
+ * altogether, so turned-off metrics cost one volatile read per sentence.
+ **/
+
+public interface TaggerMetrics {
+    // measures nothing; installed until another implementation is
+    TaggerMetrics NOOP = new TaggerMetrics() {};
+
+    /**
+     * called once for every decoded sentence, on the decoding thread
+     * @param length number of words
+     * @param unknownWords words never seen in training, whose whole emission column is the UNSEEN penalty
+     * @param penalizedWords words whose chosen tag never emitted them, so the UNSEEN penalty is on the best path;
+     *                       includes the unknown words
+     * @param statesExpanded lattice states whose successors were scored, counting the # start state
+     * @param nanos time spent decoding
+     */
+    default void sentenceDecoded(int length, int unknownWords, int penalizedWords, long statesExpanded, long nanos) {}
+
+    /**
+     * called when a training or model loading phase finishes
+     * @param phase name of the phase, e.g. "count" or "normalize"
+     * @param nanos time spent in it
+     */
+    default void trainingPhase(String phase, long nanos) {}
+
+    /**
+     * called whenever a compiled model is built or loaded
+     * @param heapBytes estimated bytes the model keeps on the heap
+     * @param mappedBytes bytes of model file mapped into memory
+     */
+    default void modelBuilt(long heapBytes, long mappedBytes) {}
+}
@@ -0,0 +1,196 @@
+package postagger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory TaggerMetrics: striped counters for tokens, sentences, unknown and penalized words and expanded states,
+ * a decode latency histogram per range of sentence lengths, total time per training phase and the footprint of the
+ * last model built. Readable as a report, or over JMX once registered.
+ **/
+
+public final class TaggerStats implements TaggerMetrics, TaggerStatsMXBean {
+    public static final String OBJECT_NAME = "postagger:type=TaggerStats";
+    // upper ends of the sentence length ranges latencies are kept for; the last range has no upper end
+    private static final int[] LENGTH_LIMITS = {5, 10, 20, 40};
+
+    private final LongAdder sentences = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder unknownWords = new LongAdder();
+    private final LongAdder penalizedWords = new LongAdder();
+    private final LongAdder statesExpanded = new LongAdder();
+    private final LatencyHistogram[] latencies = new LatencyHistogram[LENGTH_LIMITS.length + 1];
+    private final Map<String, LongAdder> phaseNanos = new ConcurrentHashMap<>();
+    private volatile long modelHeapBytes;
+    private volatile long modelMappedBytes;
+
+    public TaggerStats() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * creates a TaggerStats, installs it with Metrics.install and registers it with the platform MBean server
+     * @return the installed stats
+     */
+    public static TaggerStats installAndRegister() {
+        TaggerStats stats = new TaggerStats();
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(stats, new ObjectName(OBJECT_NAME));
+        }
+        catch (JMException exception) {
+            System.out.println("Sorry, this does not work. Here is the error: " + exception.getMessage());
+        }
+        Metrics.install(stats);
+        return stats;
+    }
+
+    // ---------------------------------------------------------------------------------
+    // TaggerMetrics
+
+    @Override
+    public void sentenceDecoded(int length, int unknownWords, int penalizedWords, long statesExpanded, long nanos) {
+        sentences.increment();
+        tokens.add(length);
+        this.unknownWords.add(unknownWords);
+        this.penalizedWords.add(penalizedWords);
+        this.statesExpanded.add(statesExpanded);
+        latencies[lengthRange(length)].record(nanos);
+    }
+
+    @Override
+    public void trainingPhase(String phase, long nanos) {
+        phaseNanos.computeIfAbsent(phase, name -> new LongAdder()).add(nanos);
+    }
+
+    @Override
+    public void modelBuilt(long heapBytes, long mappedBytes) {
+        modelHeapBytes = heapBytes;
+        modelMappedBytes = mappedBytes;
+    }
+
+    // ---------------------------------------------------------------------------------
+    // TaggerStatsMXBean
+
+    @Override
+    public long getSentences() {
+        return sentences.sum();
+    }
+
+    @Override
+    public long getTokens() {
+        return tokens.sum();
+    }
+
+    @Override
+    public double getOutOfVocabularyRate() {
+        return perToken(unknownWords.sum());
+    }
+
+    @Override
+    public double getPenaltyRate() {
+        return perToken(penalizedWords.sum());
+    }
+
+    @Override
+    public double getStatesExpandedPerToken() {
+        return perToken(statesExpanded.sum());
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP50Micros() {
+        return latencyMicros(50);
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP99Micros() {
+        return latencyMicros(99);
+    }
+
+    @Override
+    public Map<String, Double> getTrainingPhaseMillis() {
+        Map<String, Double> millis = new TreeMap<>();
+        phaseNanos.forEach((phase, nanos) -> millis.put(phase, nanos.sum() / 1e6));
+        return millis;
+    }
+
+    @Override
+    public long getModelHeapBytes() {
+        return modelHeapBytes;
+    }
+
+    @Override
+    public long getModelMappedBytes() {
+        return modelMappedBytes;
+    }
+
+    @Override
+    public void reset() {
+        sentences.reset();
+        tokens.reset();
+        unknownWords.reset();
+        penalizedWords.reset();
+        statesExpanded.reset();
+        for (LatencyHistogram histogram : latencies) {
+            histogram.reset();
+        }
+        phaseNanos.clear();
+    }
+
+    /**
+     * @return every measurement, one per line
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d sentences, %d tokens, %.2f%% unknown, %.2f%% penalized, "
+                        + "%.1f states expanded per token%n", getSentences(), getTokens(),
+                100 * getOutOfVocabularyRate(), 100 * getPenaltyRate(), getStatesExpandedPerToken()));
+        Map<String, Double> p50 = getLatencyP50Micros();
+        Map<String, Double> p99 = getLatencyP99Micros();
+        for (int range = 0; range < latencies.length; range++) {
+            String name = rangeName(range);
+            report.append(String.format("%-10s %8d sentences   p50 %10.1f us   p99 %10.1f us%n", name,
+                    latencies[range].count(), p50.get(name), p99.get(name)));
+        }
+        getTrainingPhaseMillis().forEach((phase, millis) ->
+                report.append(String.format("%-10s %10.1f ms%n", phase, millis)));
+        report.append(String.format("model      %d bytes on heap, %d bytes mapped%n", modelHeapBytes,
+                modelMappedBytes));
+        return report.toString();
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    private double perToken(long count) {
+        long total = tokens.sum();
+        return total == 0 ? 0.0 : (double) count / total;
+    }
+
+    private Map<String, Double> latencyMicros(double percentile) {
+        Map<String, Double> micros = new LinkedHashMap<>();
+        for (int range = 0; range < latencies.length; range++) {
+            micros.put(rangeName(range), latencies[range].percentile(percentile) / 1e3);
+        }
+        return micros;
+    }
+
+    private static int lengthRange(int length) {
+        int range = 0;
+        while (range < LENGTH_LIMITS.length && length > LENGTH_LIMITS[range]) {
+            range++;
+        }
+        return range;
+    }
+
+    private static String rangeName(int range) {
+        int low = range == 0 ? 1 : LENGTH_LIMITS[range - 1] + 1;
+        return range == LENGTH_LIMITS.length ? low + "+ words" : low + "-" + LENGTH_LIMITS[range] + " words";
+    }
+}
@@ -0,0 +1,49 @@
+package postagger;
+
+import java.util.Map;
+
+/**
+ * JMX view of TaggerStats, registered as postagger:type=TaggerStats.
+ **/
+
+public interface TaggerStatsMXBean {
+    long getSentences();
+
+    long getTokens();
+
+    /**
+     * @return share of tokens never seen in training
+     */
+    double getOutOfVocabularyRate();
+
+    /**
+     * @return share of tokens whose chosen tag carries the UNSEEN penalty
+     */
+    double getPenaltyRate();
+
+    double getStatesExpandedPerToken();
+
+    /**
+     * @return p50 decode latency in microseconds, by sentence length range
+     */
+    Map<String, Double> getLatencyP50Micros();
+
+    /**
+     * @return p99 decode latency in microseconds, by sentence length range
+     */
+    Map<String, Double> getLatencyP99Micros();
+
+    /**
+     * @return total milliseconds spent in each training phase
+     */
+    Map<String, Double> getTrainingPhaseMillis();
+
+    long getModelHeapBytes();
+
+    long getModelMappedBytes();
+
+    /**
+     * clears every count and histogram; the model footprint is kept
+     */
+    void reset();
+}
@@ -0,0 +1,399 @@
+package postagger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Long-lived tagging service on the JDK's built-in HTTP server, for one model loaded at startup.
+ *
+ * POST /tag takes UTF-8 text, one sentence per line, and answers with one line of space-separated tags per sentence,
+ * the same format as the tag files; bodies over 1 MiB are refused with 413. Input is lower-cased like consoleTest does.
+ * GET /stats reports request counts, throughput and p50/p99 latency as "name value" lines.
+ *
+ * Each exchange is handled on a virtual thread when the JDK has them (21 and later), otherwise on a cached pool of
+ * platform threads. Handlers do not decode: they queue their sentences and wait. A single batcher thread takes every
+ * request queued so far, optionally waits up to maxWait for more, and tags them all in one BatchTagger pass, so
+ * concurrent requests share the hand-off and fork/join overhead of one decode pass. A pass that fails, even with an
+ * Error, fails only its own requests; a handler whose pass never finishes answers 503 after RESULT_TIMEOUT_SECONDS.
+ *
+ * The JDK server writes headers and body separately, so without TCP_NODELAY small answers wait on delayed ACKs. The
+ * setting is JVM-wide and read once, when the first server is created; start the JVM with
+ * -Dsun.net.httpserver.nodelay=true.
+ **/
+
+public final class TaggingServer implements AutoCloseable {
+    public static final int DEFAULT_MAX_BATCH = 256; // sentences per decode pass
+    private static final int MAX_PENDING = 4096; // queued requests before the service answers 503
+    private static final int MAX_BODY_BYTES = 1 << 20; // request body size before the service answers 413
+    private static final long RESULT_TIMEOUT_SECONDS = 60; // wait for a decode pass before the service answers 503
+    private static final int LATENCY_SAMPLES = 1 << 14;
+    private static final int CHUNK_SIZE = 16; // sentences per fork/join task; batches are small
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final boolean virtualThreads;
+    private final BatchTagger batchTagger;
+    private final BlockingQueue<Request> pending = new ArrayBlockingQueue<>(MAX_PENDING);
+    private final Thread batcher;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private volatile boolean closed;
+
+    // statistics
+    private final LatencyWindow latency = new LatencyWindow(LATENCY_SAMPLES);
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder sentences = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * binds the service with the default batch size and no extra batching delay; call start() to begin serving
+     * @param model the model to tag with
+     * @param address address to listen on; port 0 picks a free port
+     * @param parallelism number of threads each decode pass is split across
+     * @throws IOException if the address cannot be bound
+     */
+    public TaggingServer(CompiledModel model, InetSocketAddress address, int parallelism) throws IOException {
+        this(model, address, parallelism, DEFAULT_MAX_BATCH, 0);
+    }
+
+    /**
+     * binds the service; call start() to begin serving
+     * @param model the model to tag with
+     * @param address address to listen on; port 0 picks a free port
+     * @param parallelism number of threads each decode pass is split across
+     * @param maxBatch sentences after which a pass stops taking more requests
+     * @param maxWaitMicros how long a pass may wait for more requests before decoding; 0 only batches requests that
+     *                      queued up while the previous pass ran, which adds no latency when the service is idle
+     * @throws IOException if the address cannot be bound
+     */
+    public TaggingServer(CompiledModel model, InetSocketAddress address, int parallelism, int maxBatch,
+                         long maxWaitMicros) throws IOException {
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("maxBatch must be positive");
+        }
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.batchTagger = new BatchTagger(model, parallelism, CHUNK_SIZE);
+        this.server = HttpServer.create(address, 0);
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.handlers = virtual != null ? virtual : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "sudi-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(handlers);
+        server.createContext("/tag", this::handleTag);
+        server.createContext("/stats", this::handleStats);
+
+        batcher = new Thread(this::runBatcher, "sudi-batcher");
+        batcher.setDaemon(true);
+    }
+
+    /**
+     * starts accepting requests
+     */
+    public void start() {
+        batcher.start();
+        server.start();
+    }
+
+    /**
+     * @return the address the service listens on, with the actual port
+     */
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    /**
+     * @return whether exchanges are handled on virtual threads
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return the statistics served at /stats: counts since start, throughput and latency percentiles
+     */
+    public String stats() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long[] percentiles = latency.percentiles(50, 99, 100);
+        long batchCount = batches.sum();
+        StringBuilder stats = new StringBuilder();
+        stats.append("requests ").append(requests.sum()).append('\n');
+        stats.append("rejected ").append(rejected.sum()).append('\n');
+        stats.append("sentences ").append(sentences.sum()).append('\n');
+        stats.append("tokens ").append(tokens.sum()).append('\n');
+        stats.append("batches ").append(batchCount).append('\n');
+        stats.append(String.format(Locale.ROOT, "sentences_per_batch %.2f\n",
+                batchCount == 0 ? 0.0 : (double) sentences.sum() / batchCount));
+        stats.append(String.format(Locale.ROOT, "uptime_seconds %.1f\n", seconds));
+        stats.append(String.format(Locale.ROOT, "requests_per_second %.1f\n", requests.sum() / seconds));
+        stats.append(String.format(Locale.ROOT, "tokens_per_second %.1f\n", tokens.sum() / seconds));
+        stats.append(String.format(Locale.ROOT, "latency_p50_ms %.3f\n", percentiles[0] / 1e6));
+        stats.append(String.format(Locale.ROOT, "latency_p99_ms %.3f\n", percentiles[1] / 1e6));
+        stats.append(String.format(Locale.ROOT, "latency_max_ms %.3f\n", percentiles[2] / 1e6));
+        stats.append("handler_threads ").append(virtualThreads ? "virtual" : "platform").append('\n');
+        return stats.toString();
+    }
+
+    /**
+     * stops accepting requests; queued requests fail
+     */
+    @Override
+    public void close() {
+        closed = true;
+        server.stop(0);
+        batcher.interrupt();
+        for (Request request = pending.poll(); request != null; request = pending.poll()) {
+            request.result.completeExceptionally(new IOException("service stopped"));
+        }
+        handlers.shutdownNow();
+        batchTagger.close();
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    private void handleTag(HttpExchange exchange) throws IOException {
+        long started = System.nanoTime();
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "use POST with one sentence per line\n");
+                return;
+            }
+            byte[] bytes = readBody(exchange);
+            if (bytes == null) {
+                exchange.getResponseHeaders().set("Connection", "close"); // the rest of the body is never read
+                respond(exchange, 413, "request body larger than " + MAX_BODY_BYTES + " bytes\n");
+                return;
+            }
+            Request request = new Request(parse(new String(bytes, StandardCharsets.UTF_8)));
+            if (closed || !pending.offer(request)) {
+                rejected.increment();
+                respond(exchange, 503, "too many queued requests\n");
+                return;
+            }
+
+            List<ArrayList<String>> tags;
+            try {
+                tags = request.result.get(RESULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            catch (TimeoutException exception) {
+                pending.remove(request); // if the batcher has not taken it yet, it never decodes it
+                rejected.increment();
+                respond(exchange, 503, "timed out waiting for the tagger\n");
+                return;
+            }
+            StringBuilder body = new StringBuilder();
+            for (ArrayList<String> line : tags) {
+                body.append(String.join(" ", line)).append('\n');
+            }
+            respond(exchange, 200, body.toString());
+
+            requests.increment();
+            sentences.add(request.sentences.size());
+            for (String[] sentence : request.sentences) {
+                tokens.add(sentence.length);
+            }
+            latency.record(System.nanoTime() - started);
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, "service stopped\n");
+        }
+        catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            respond(exchange, 500, "Sorry, this does not work. Here is the error: "
+                    + (cause.getMessage() != null ? cause.getMessage() : cause.toString()) + "\n");
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            respond(exchange, 200, stats());
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * batcher loop: takes every queued request, up to maxBatch sentences, and tags them in one pass
+     */
+    private void runBatcher() {
+        List<Request> batch = new ArrayList<>();
+        try {
+            while (!closed) {
+                batch.clear();
+                Request first = pending.take();
+                batch.add(first);
+                int count = first.sentences.size();
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (count < maxBatch) {
+                    Request next = pending.poll();
+                    if (next == null && maxWaitNanos > 0) {
+                        next = pending.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    count += next.sentences.size();
+                }
+                decode(batch, count);
+            }
+        }
+        catch (InterruptedException exception) {
+            // closed
+        }
+        for (Request request : batch) {
+            request.result.completeExceptionally(new IOException("service stopped"));
+        }
+    }
+
+    /**
+     * tags a batch and completes its requests; anything the pass throws, an Error included, fails only this batch, so
+     * the batcher thread goes on and no handler is left waiting
+     */
+    private void decode(List<Request> batch, int count) {
+        try {
+            List<String[]> all = new ArrayList<>(count);
+            for (Request request : batch) {
+                all.addAll(request.sentences);
+            }
+            ArrayList<ArrayList<String>> tags = batchTagger.tagAll(all);
+            int from = 0;
+            for (Request request : batch) {
+                int to = from + request.sentences.size();
+                request.result.complete(tags.subList(from, to));
+                from = to;
+            }
+        }
+        catch (Throwable exception) {
+            for (Request request : batch) {
+                request.result.completeExceptionally(exception);
+            }
+        }
+        batches.increment();
+    }
+
+    /**
+     * reads a request body of at most MAX_BODY_BYTES; a declared Content-Length over the limit is refused before
+     * reading, and a body without one is read no further than one byte past the limit
+     * @return the body, or null if it is too large
+     */
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        String declared = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (declared != null) {
+            try {
+                if (Long.parseLong(declared.trim()) > MAX_BODY_BYTES) {
+                    return null;
+                }
+            }
+            catch (NumberFormatException exception) {
+                // leave it to the bounded read
+            }
+        }
+        byte[] bytes = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+        return bytes.length > MAX_BODY_BYTES ? null : bytes;
+    }
+
+    /**
+     * splits a request body into lower-cased, tokenized lines; a final line break does not start another sentence
+     */
+    private static List<String[]> parse(String body) {
+        List<String[]> lines = new ArrayList<>();
+        int start = 0;
+        while (start < body.length()) {
+            int end = body.indexOf('\n', start);
+            if (end < 0) {
+                end = body.length();
+            }
+            int lineEnd = end > start && body.charAt(end - 1) == '\r' ? end - 1 : end;
+            lines.add(Tokens.split(body.substring(start, lineEnd).toLowerCase()));
+            start = end + 1;
+        }
+        return lines;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor, looked up reflectively so the tagger still builds for JDK 17
+     * @return the executor, or null if this JDK has no virtual threads (or only as a disabled preview)
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch (ReflectiveOperationException | UnsupportedOperationException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * the sentences of one POST and the future its handler waits on
+     */
+    private static final class Request {
+        final List<String[]> sentences;
+        final CompletableFuture<List<ArrayList<String>>> result = new CompletableFuture<>();
+
+        Request(List<String[]> sentences) {
+            this.sentences = sentences;
+        }
+    }
+
+    /**
+     * serves a saved model until the process is stopped
+     * usage: TaggingServer model-file [port] [parallelism]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("usage: TaggingServer model-file [port] [parallelism]");
+            return;
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        try {
+            CompiledModel model = ModelFile.load(Paths.get(args[0])); // loaded once, shared by every request
+            TaggingServer service = new TaggingServer(model, new InetSocketAddress(port), parallelism);
+            Runtime.getRuntime().addShutdownHook(new Thread(service::close));
+            service.start();
+            System.out.println("Tagging on http://localhost:" + service.address().getPort() + "/tag ("
+                    + (service.usesVirtualThreads() ? "virtual" : "platform") + " handler threads), stats at /stats");
+        }
+        catch (IOException exception) {
+            System.out.println("Sorry, this does not work. Here is the error: " + exception.getMessage());
+        }
+    }
+}
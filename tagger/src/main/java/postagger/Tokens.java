@@ -0,0 +1,45 @@
+package postagger;
+
+/**
+ * Splits lines into tokens on single spaces without going through String.split.
+ **/
+
+final class Tokens {
+    private Tokens() {}
+
+    /**
+     * splits a line on every single space, with the same result as line.split(" "): empty tokens between spaces are
+     * kept, trailing empty tokens are dropped, and a line without spaces is one token
+     * @param line the line to split
+     * @return the tokens of the line
+     */
+    static String[] split(String line) {
+        int end = line.length();
+        if (line.indexOf(' ') < 0) {
+            return new String[] {line};
+        }
+        while (end > 0 && line.charAt(end - 1) == ' ') {
+            end--;
+        }
+        int count = 1;
+        for (int i = 0; i < end; i++) {
+            if (line.charAt(i) == ' ') {
+                count++;
+            }
+        }
+        if (end == 0) {
+            return new String[0];
+        }
+        String[] tokens = new String[count];
+        int start = 0;
+        int token = 0;
+        for (int i = 0; i < end; i++) {
+            if (line.charAt(i) == ' ') {
+                tokens[token++] = line.substring(start, i);
+                start = i + 1;
+            }
+        }
+        tokens[token] = line.substring(start, end);
+        return tokens;
+    }
+}
@@ -0,0 +1,372 @@
+package postagger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Raw transition and emission counts of a tagged corpus, kept in primitive count tables keyed by interned tag and
+ * word IDs. Counts from several shards can be merged, then normalized once into the log-probability maps Sudi uses.
+ * Every row also keeps its sum and the columns it has counts in, so OnlineModel can normalize single rows again after
+ * new sentences are added.
+ **/
+
+public final class TrainingCounts {
+    // the start state every sentence transitions from; always tag ID 0
+    static final String START = "#";
+
+    private final Map<String, Integer> tagIds = new HashMap<>();
+    private final List<String> tags = new ArrayList<>();
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private final CountTable emissions = new CountTable(1 << 12); // key(tag, word) -> count
+    private final CountTable transitions = new CountTable(1 << 8); // key(from tag, to tag) -> count
+    private final Rows emissionRows = new Rows(); // per tag: total count and emitted words
+    private final Rows transitionRows = new Rows(); // per tag, and #: total count and next tags
+    private long tokens;
+
+    public TrainingCounts() {
+        tagId(START);
+    }
+
+    /**
+     * counts one tagged sentence the same way trainSudi does: an emission for every word with the tag at the same
+     * position, and a transition from # through every tag of the line
+     * @param splitLineWords the words of the sentence
+     * @param splitLinePOS the tags of the sentence
+     * @throws IllegalArgumentException if there are more words than tags
+     */
+    public void addSentence(String[] splitLineWords, String[] splitLinePOS) {
+        addSentence(splitLineWords, splitLinePOS, null, null);
+    }
+
+    /**
+     * counts one tagged sentence and records which rows it changed
+     * @param changedEmissionRows tag IDs whose emission counts changed are set here, if not null
+     * @param changedTransitionRows tag IDs, including 0 for #, whose transition counts changed are set here, if not
+     *                              null
+     */
+    void addSentence(String[] splitLineWords, String[] splitLinePOS, BitSet changedEmissionRows,
+                     BitSet changedTransitionRows) {
+        checkAligned(splitLineWords, splitLinePOS);
+        for (int i = 0; i < splitLineWords.length; i++) {
+            int tag = tagId(splitLinePOS[i]);
+            addEmission(tag, wordId(splitLineWords[i]), 1);
+            if (changedEmissionRows != null) {
+                changedEmissionRows.set(tag);
+            }
+        }
+        int startingPOS = tagId(START);
+        for (String pos : splitLinePOS) {
+            int nextPOS = tagId(pos);
+            addTransition(startingPOS, nextPOS, 1);
+            if (changedTransitionRows != null) {
+                changedTransitionRows.set(startingPOS);
+            }
+            startingPOS = nextPOS;
+        }
+        tokens += splitLineWords.length;
+    }
+
+    /**
+     * counts a pair of training files on the calling thread, tokenizing them in place as UTF-8 bytes: a String is
+     * made once per distinct word and tag, not per token. Only the first line of each file is lower-cased, as
+     * trainSudi does
+     * @param textFileWords the text file containing the actual sentences and words
+     * @param textFilePOS the text file containing the POS states
+     * @return counts of every line
+     * @throws IOException if a file cannot be read, a line has more words than tags, or the files differ in length
+     */
+    public static TrainingCounts count(Path textFileWords, Path textFilePOS) throws IOException {
+        long started = Metrics.startPhase();
+        TrainingCounts counts = new TrainingCounts();
+        try (TaggedCorpus corpus = new TaggedCorpus(textFileWords, textFilePOS, counts::wordId, counts::tagId, true)) {
+            while (corpus.next()) {
+                if (corpus.wordCount() > corpus.tagCount()) {
+                    throw new IOException("line " + corpus.lineNumber() + ": " + corpus.wordCount()
+                            + " words but only " + corpus.tagCount() + " tags");
+                }
+                counts.addSentence(corpus.wordIds(), corpus.wordCount(), corpus.tagIds(), corpus.tagCount());
+            }
+        }
+        Metrics.endPhase("count", started);
+        return counts;
+    }
+
+    /**
+     * counts one tagged sentence given as IDs of this instance, like addSentence(String[], String[])
+     * @param wordIds IDs from wordId(); only the first wordCount are used
+     * @param tagIds IDs from tagId(); only the first tagCount are used, and there must be at least wordCount
+     */
+    void addSentence(int[] wordIds, int wordCount, int[] tagIds, int tagCount) {
+        for (int i = 0; i < wordCount; i++) {
+            addEmission(tagIds[i], wordIds[i], 1);
+        }
+        int startingPOS = 0; // #
+        for (int i = 0; i < tagCount; i++) {
+            addTransition(startingPOS, tagIds[i], 1);
+            startingPOS = tagIds[i];
+        }
+        tokens += wordCount;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a sentence has more words than tags, which addSentence cannot count
+     */
+    static void checkAligned(String[] splitLineWords, String[] splitLinePOS) {
+        if (splitLineWords.length > splitLinePOS.length) {
+            throw new IllegalArgumentException(splitLineWords.length + " words but only " + splitLinePOS.length
+                    + " tags");
+        }
+    }
+
+    /**
+     * adds every count of another instance to this one
+     * @param other counts to merge in; not modified
+     */
+    public void addAll(TrainingCounts other) {
+        int[] tagMapping = new int[other.tags.size()];
+        for (int i = 0; i < tagMapping.length; i++) {
+            tagMapping[i] = tagId(other.tags.get(i));
+        }
+        int[] wordMapping = new int[other.words.size()];
+        for (int i = 0; i < wordMapping.length; i++) {
+            wordMapping[i] = wordId(other.words.get(i));
+        }
+        for (int slot = 0; slot < other.emissions.capacity(); slot++) {
+            if (other.emissions.isUsed(slot)) {
+                long key = other.emissions.keyAt(slot);
+                addEmission(tagMapping[CountTable.high(key)], wordMapping[CountTable.low(key)],
+                        other.emissions.countAt(slot));
+            }
+        }
+        for (int slot = 0; slot < other.transitions.capacity(); slot++) {
+            if (other.transitions.isUsed(slot)) {
+                long key = other.transitions.keyAt(slot);
+                addTransition(tagMapping[CountTable.high(key)], tagMapping[CountTable.low(key)],
+                        other.transitions.countAt(slot));
+            }
+        }
+        tokens += other.tokens;
+    }
+
+    /**
+     * @return number of words counted
+     */
+    public long tokens() {
+        return tokens;
+    }
+
+    /**
+     * normalizes the emission counts of every tag into log-probabilities
+     * @return Map<POS, Map<word, log-prob>>, equal to the observationMap trainSudi builds from the same lines
+     */
+    public Map<String, Map<String, Double>> observationLogProbs() {
+        return normalize(emissions, emissionRows, words);
+    }
+
+    /**
+     * normalizes the transition counts of every tag, and of #, into log-probabilities
+     * @return Map<POS, Map<NextPOS, log-prob>>, equal to the transitionMap trainSudi builds from the same lines
+     */
+    public Map<String, Map<String, Double>> transitionLogProbs() {
+        return normalize(transitions, transitionRows, tags);
+    }
+
+    // ---------------------------------------------------------------------------------
+    // row access for OnlineModel
+
+    /**
+     * @return number of tag IDs, including 0 for #
+     */
+    int numTagIds() {
+        return tags.size();
+    }
+
+    int numWords() {
+        return words.size();
+    }
+
+    String word(int wordId) {
+        return words.get(wordId);
+    }
+
+    Map<String, Integer> vocabulary() {
+        return wordIds;
+    }
+
+    /**
+     * @return the tag with a tag ID, # for 0
+     */
+    String tag(int tagId) {
+        return tags.get(tagId);
+    }
+
+    /**
+     * gives the tags in the order CompiledModel.compile interns them from observationLogProbs() and
+     * transitionLogProbs(), without normalizing anything: the same keys are put into HashMaps in the same order as
+     * normalize puts them, so the maps iterate them alike
+     * @return the tags of compiled tag IDs 0..T-1; # is left out unless a line is tagged #
+     */
+    String[] compiledTags() {
+        Map<String, Map<String, Double>> observed = new HashMap<>();
+        Map<String, Map<String, Double>> next = new HashMap<>();
+        for (int row = 0; row < tags.size(); row++) {
+            if (emissionRows.size(row) > 0) {
+                observed.put(tags.get(row), Collections.emptyMap());
+            }
+            if (transitionRows.size(row) > 0) {
+                Map<String, Double> rowKeys = new HashMap<>();
+                int[] used = transitionRows.columns(row);
+                for (int i = 0; i < transitionRows.size(row); i++) {
+                    rowKeys.put(tags.get(used[i]), 0.0);
+                }
+                next.put(tags.get(row), rowKeys);
+            }
+        }
+        return CompiledModel.tagOrder(observed, next);
+    }
+
+    /**
+     * @return the words tag has emitted; only the first emittedCount(tag) entries are used
+     */
+    int[] emittedWords(int tag) {
+        return emissionRows.columns(tag);
+    }
+
+    int emittedCount(int tag) {
+        return emissionRows.size(tag);
+    }
+
+    /**
+     * @return log(count / row sum) of a word emitted by a tag, which must have emitted it
+     */
+    double emissionLogProb(int tag, int word) {
+        return Math.log((double) emissions.get(CountTable.key(tag, word)) / (double) emissionRows.sum(tag));
+    }
+
+    /**
+     * writes the normalized transition row of a tag ID into a compiled start row (for #) or transition matrix
+     * @param from tag ID, 0 for #
+     * @param compiledIds compiled tag ID of every tag ID, -1 for tags the compiled model leaves out
+     * @param start compiled start row
+     * @param transitionMatrix compiled T*T transition matrix
+     */
+    void fillTransitionRow(int from, int[] compiledIds, double[] start, double[] transitionMatrix) {
+        int numTags = start.length;
+        int[] next = transitionRows.columns(from);
+        double sum = transitionRows.sum(from);
+        for (int i = 0; i < transitionRows.size(from); i++) {
+            int to = compiledIds[next[i]];
+            if (to < 0) {
+                continue; // # is only a compiled tag when a line is tagged #
+            }
+            double logProb = Math.log((double) transitions.get(CountTable.key(from, next[i])) / sum);
+            if (from == 0) {
+                start[to] = logProb;
+            }
+            else {
+                transitionMatrix[compiledIds[from] * numTags + to] = logProb;
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------------------
+
+    private void addEmission(int tag, int word, long amount) {
+        emissionRows.add(tag, word, amount, emissions.add(CountTable.key(tag, word), amount));
+    }
+
+    private void addTransition(int from, int to, long amount) {
+        transitionRows.add(from, to, amount, transitions.add(CountTable.key(from, to), amount));
+    }
+
+    /**
+     * turns each count into log(count / row sum); counts are whole numbers, so the sums and quotients are exactly
+     * those of trainSudi's Double maps. Rows are put in tag ID order and columns in the order each row first counted
+     * them, so the iteration order of the maps, and with it the tag IDs CompiledModel.compile gives, only depends on
+     * the counts, which compiledTags relies on
+     */
+    private Map<String, Map<String, Double>> normalize(CountTable table, Rows rows, List<String> columns) {
+        Map<String, Map<String, Double>> logProbs = new HashMap<>();
+        for (int row = 0; row < tags.size(); row++) {
+            if (rows.size(row) == 0) {
+                continue;
+            }
+            Map<String, Double> rowLogProbs = new HashMap<>();
+            int[] used = rows.columns(row);
+            double sum = rows.sum(row);
+            for (int i = 0; i < rows.size(row); i++) {
+                rowLogProbs.put(columns.get(used[i]), Math.log((double) table.get(CountTable.key(row, used[i])) / sum));
+            }
+            logProbs.put(tags.get(row), rowLogProbs);
+        }
+        return logProbs;
+    }
+
+    /**
+     * @return the ID of a tag, interning it if it is new
+     */
+    int tagId(String tag) {
+        Integer id = tagIds.get(tag);
+        if (id == null) {
+            id = tags.size();
+            tagIds.put(tag, id);
+            tags.add(tag);
+        }
+        return id;
+    }
+
+    /**
+     * @return the ID of a word, interning it if it is new
+     */
+    int wordId(String word) {
+        Integer id = wordIds.get(word);
+        if (id == null) {
+            id = words.size();
+            wordIds.put(word, id);
+            words.add(word);
+        }
+        return id;
+    }
+
+    /**
+     * total count and list of used columns of every row of a count table
+     */
+    private static final class Rows {
+        private long[] sums = new long[16];
+        private int[][] columns = new int[16][];
+        private int[] sizes = new int[16];
+
+        void add(int row, int column, long amount, boolean newColumn) {
+            if (row >= sums.length) {
+                int grown = Math.max(row + 1, sums.length * 2);
+                sums = Arrays.copyOf(sums, grown);
+                columns = Arrays.copyOf(columns, grown);
+                sizes = Arrays.copyOf(sizes, grown);
+            }
+            sums[row] += amount;
+            if (newColumn) {
+                if (columns[row] == null) {
+                    columns[row] = new int[4];
+                }
+                else if (sizes[row] == columns[row].length) {
+                    columns[row] = Arrays.copyOf(columns[row], sizes[row] * 2);
+                }
+                columns[row][sizes[row]++] = column;
+            }
+        }
+
+        long sum(int row) {
+            return row < sums.length ? sums[row] : 0;
+        }
+
+        int[] columns(int row) {
+            return row < columns.length && columns[row] != null ? columns[row] : new int[0];
+        }
+
+        int size(int row) {
+            return row < sizes.length ? sizes[row] : 0;
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package postagger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Second-order HMM: the tag of a word depends on the two tags before it. Transition probabilities are smoothed by
+ * deleted interpolation (Brants, TnT), P(w | u, v) = l1 P(w) + l2 P(w | v) + l3 P(w | u, v), with the weights
+ * estimated from the training counts themselves. Emissions are those of the first-order model of the same counts.
+ *
+ * Decoding runs over states that are pairs of tags (previous, current), with # standing in before the first word.
+ * Like the first-order model, a tag never seen after another cannot follow it, so only pairs of tags seen next to
+ * each other exist; their scores sit in dense arrays indexed by previous * P + current, P = T + 1, and each column
+ * only expands the pairs the column before it reached.
+ **/
+
+public final class TrigramModel {
+    private final CompiledModel firstOrder; // tags, lexicon and which tags may follow which
+    private final int numPairs; // P = T + 1: pair index 0 is #, pair index t + 1 is tag ID t
+    private final int[][] successors; // successors[v]: pair indexes that may follow pair index v, ascending
+    private final int[] pairOffsets; // pairOffsets[u * P + v]: first entry of the pair in transitions, -1 if impossible
+    private final double[] transitions; // transitions[pairOffsets[u * P + v] + k]: log P(successors[v][k] | u, v)
+    private final double[] lambdas; // unigram, bigram and trigram interpolation weights
+    private final int possiblePairs; // number of pairs with an offset
+
+    /**
+     * @param firstOrder first-order model compiled from the same counts
+     * @param successors successors[v]: pair indexes that may follow pair index v, ascending
+     * @param pairOffsets first entry of each possible pair in transitions, -1 for impossible pairs
+     * @param transitions interpolated log-probs of every successor of every possible pair
+     * @param lambdas unigram, bigram and trigram interpolation weights
+     */
+    private TrigramModel(CompiledModel firstOrder, int[][] successors, int[] pairOffsets, double[] transitions,
+                         double[] lambdas) {
+        this.firstOrder = firstOrder;
+        this.numPairs = firstOrder.numTags() + 1;
+        this.successors = successors;
+        this.pairOffsets = pairOffsets;
+        this.transitions = transitions;
+        this.lambdas = lambdas;
+        int possible = 0;
+        for (int offset : pairOffsets) {
+            if (offset >= 0) {
+                possible++;
+            }
+        }
+        this.possiblePairs = possible;
+    }
+
+    /**
+     * trains a second-order model from a pair of training files on the calling thread, reading them as UTF-8 bytes
+     * the way TrainingCounts.count does; only the first line of each file is lower-cased, as trainSudi does
+     * @param textFileWords the text file containing the actual sentences and words
+     * @param textFilePOS the text file containing the POS states
+     * @return the trained model
+     * @throws IOException if a file cannot be read, a line has more words than tags, or the files differ in length
+     */
+    public static TrigramModel train(Path textFileWords, Path textFilePOS) throws IOException {
+        long started = Metrics.startPhase();
+        TrainingCounts counts = new TrainingCounts();
+        CountTable trigrams = new CountTable(1 << 12); // key(u << 15 | v, w) -> count, in IDs of counts
+        try (TaggedCorpus corpus = new TaggedCorpus(textFileWords, textFilePOS, counts::wordId, counts::tagId, true)) {
+            while (corpus.next()) {
+                if (corpus.wordCount() > corpus.tagCount()) {
+                    throw new IOException("line " + corpus.lineNumber() + ": " + corpus.wordCount()
+                            + " words but only " + corpus.tagCount() + " tags");
+                }
+                counts.addSentence(corpus.wordIds(), corpus.wordCount(), corpus.tagIds(), corpus.tagCount());
+                // every tag of the line, after # #
+                int[] tagIds = corpus.tagIds();
+                int previous2 = 0;
+                int previous1 = 0;
+                for (int i = 0; i < corpus.tagCount(); i++) {
+                    if (tagIds[i] >= 1 << 15) {
+                        throw new IOException("more than " + ((1 << 15) - 1) + " tags");
+                    }
+                    trigrams.add(CountTable.key(previous2 << 15 | previous1, tagIds[i]), 1);
+                    previous2 = previous1;
+                    previous1 = tagIds[i];
+                }
+            }
+        }
+        Metrics.endPhase("count", started);
+        return build(counts, trigrams);
+    }
+
+    /**
+     * compiles the first-order model of the counts, then interpolates the trigram counts into a transition table
+     * @param counts emission and transition counts
+     * @param trigrams key(u << 15 | v, w) -> count, in tag IDs of counts
+     */
+    private static TrigramModel build(TrainingCounts counts, CountTable trigrams) {
+        CompiledModel firstOrder = CompiledModel.compile(counts.observationLogProbs(), counts.transitionLogProbs());
+        long started = Metrics.startPhase();
+        int numPairs = firstOrder.numTags() + 1;
+
+        // tag IDs of counts -> pair indexes; # and tags the compiled model left out map to 0
+        int[] toPair = new int[counts.numTagIds()];
+        for (int tagId = 1; tagId < toPair.length; tagId++) {
+            toPair[tagId] = firstOrder.tagId(counts.tag(tagId)) + 1;
+        }
+
+        // unigram, bigram and trigram counts over pair indexes, with the totals of every history
+        long[] unigrams = new long[numPairs];
+        long[] bigrams = new long[numPairs * numPairs];
+        long[] unigramHistories = new long[numPairs];
+        long[] bigramHistories = new long[numPairs * numPairs];
+        CountTable pairTrigrams = new CountTable(Math.max(16, trigrams.size()));
+        long total = 0;
+        for (int slot = 0; slot < trigrams.capacity(); slot++) {
+            if (!trigrams.isUsed(slot)) {
+                continue;
+            }
+            long key = trigrams.keyAt(slot);
+            long count = trigrams.countAt(slot);
+            int u = toPair[CountTable.high(key) >>> 15];
+            int v = toPair[CountTable.high(key) & ((1 << 15) - 1)];
+            int w = toPair[CountTable.low(key)];
+            if (w == 0) {
+                continue; // a line tagged #, which compiled models leave out
+            }
+            unigrams[w] += count;
+            total += count;
+            bigrams[v * numPairs + w] += count;
+            unigramHistories[v] += count;
+            bigramHistories[u * numPairs + v] += count;
+            pairTrigrams.add(CountTable.key(u * numPairs + v, w), count);
+        }
+
+        // deleted interpolation: each trigram votes, with its count, for the estimate that predicts it best once
+        // it is taken out of the counts
+        double[] lambdas = new double[3];
+        for (int slot = 0; slot < pairTrigrams.capacity(); slot++) {
+            if (!pairTrigrams.isUsed(slot)) {
+                continue;
+            }
+            long key = pairTrigrams.keyAt(slot);
+            long count = pairTrigrams.countAt(slot);
+            int history = CountTable.high(key);
+            int v = history % numPairs;
+            int w = CountTable.low(key);
+            double unigram = leftOut(unigrams[w], total);
+            double bigram = leftOut(bigrams[v * numPairs + w], unigramHistories[v]);
+            double trigram = leftOut(count, bigramHistories[history]);
+            if (trigram > bigram && trigram > unigram) {
+                lambdas[2] += count;
+            }
+            else if (bigram > unigram) {
+                lambdas[1] += count;
+            }
+            else {
+                lambdas[0] += count;
+            }
+        }
+        double votes = lambdas[0] + lambdas[1] + lambdas[2];
+        for (int i = 0; i < lambdas.length; i++) {
+            lambdas[i] = votes == 0 ? 1.0 / lambdas.length : lambdas[i] / votes;
+        }
+
+        // pair index v -> pair indexes that may follow it, from the sparsity of the first-order model
+        int[][] successors = new int[numPairs][];
+        double[] start = firstOrder.start();
+        int[] first = new int[numPairs - 1];
+        int firstCount = 0;
+        for (int to = 0; to < start.length; to++) {
+            if (start[to] != Double.NEGATIVE_INFINITY) {
+                first[firstCount++] = to + 1;
+            }
+        }
+        successors[0] = Arrays.copyOf(first, firstCount);
+        for (int v = 1; v < numPairs; v++) {
+            int[] next = firstOrder.successors(v - 1);
+            successors[v] = new int[next.length];
+            for (int k = 0; k < next.length; k++) {
+                successors[v][k] = next[k] + 1;
+            }
+        }
+
+        // possible pairs are # #, and u v wherever v may follow u; lay out the successors of each one after another
+        int[] pairOffsets = new int[numPairs * numPairs];
+        Arrays.fill(pairOffsets, -1);
+        int entries = 0;
+        for (int u = 0; u < numPairs; u++) {
+            int[] followers = u == 0 ? prepend(0, successors[0]) : successors[u];
+            for (int v : followers) {
+                pairOffsets[u * numPairs + v] = entries;
+                entries += successors[v].length;
+            }
+        }
+        double[] transitions = new double[entries];
+        for (int pair = 0; pair < pairOffsets.length; pair++) {
+            int offset = pairOffsets[pair];
+            if (offset < 0) {
+                continue;
+            }
+            int v = pair % numPairs;
+            for (int k = 0; k < successors[v].length; k++) {
+                int w = successors[v][k];
+                double probability = lambdas[0] * unigrams[w] / total
+                        + lambdas[1] * bigrams[v * numPairs + w] / unigramHistories[v];
+                if (bigramHistories[pair] > 0) {
+                    probability += lambdas[2] * pairTrigrams.get(CountTable.key(pair, w)) / bigramHistories[pair];
+                }
+                transitions[offset + k] = Math.log(probability);
+            }
+        }
+        TrigramModel model = new TrigramModel(firstOrder, successors, pairOffsets, transitions, lambdas);
+        Metrics.endPhase("interpolate", started);
+        return model;
+    }
+
+    /**
+     * @return (count - 1) / (total - 1), the estimate once the event being voted on is left out; 0 if nothing is left
+     */
+    private static double leftOut(long count, long total) {
+        return total > 1 ? (double) (count - 1) / (double) (total - 1) : 0.0;
+    }
+
+    private static int[] prepend(int first, int[] rest) {
+        int[] result = new int[rest.length + 1];
+        result[0] = first;
+        System.arraycopy(rest, 0, result, 1, rest.length);
+        return result;
+    }
+
+    /**
+     * @return the first-order model of the same counts, which gives the tags, the lexicon and word IDs
+     */
+    public CompiledModel firstOrder() {
+        return firstOrder;
+    }
+
+    /**
+     * @return the unigram, bigram and trigram interpolation weights, which sum to 1
+     */
+    public double[] lambdas() {
+        return lambdas.clone();
+    }
+
+    /**
+     * @return number of tag pairs a sentence can pass through, counting # # and # followed by a tag
+     */
+    public int possiblePairs() {
+        return possiblePairs;
+    }
+
+    /**
+     * @return estimated bytes the model keeps on the heap, including its first-order model
+     */
+    public long heapBytes() {
+        long bytes = 8L * transitions.length + 4L * pairOffsets.length;
+        for (int[] row : successors) {
+            bytes += 16 + 4L * row.length;
+        }
+        return bytes + firstOrder.heapBytes();
+    }
+
+    /**
+     * encodes, decodes and converts the tag IDs back to tags
+     * @param sentence an Array String that contains words
+     * @return Array list of sequence of tags for a line as found through second-order viterbi decoding
+     */
+    public ArrayList<String> tag(String[] sentence) {
+        ViterbiScratch scratch = ViterbiScratch.forCurrentThread();
+        int length = sentence.length;
+        scratch.ensureCapacity(length, numPairs * numPairs);
+        for (int i = 0; i < length; i++) {
+            scratch.wordIds[i] = firstOrder.wordId(sentence[i]);
+        }
+        decodeInto(scratch.wordIds, length, scratch);
+        ArrayList<String> returnList = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            returnList.add(firstOrder.tag(scratch.path[i]));
+        }
+        return returnList;
+    }
+
+    /**
+     * executes second-order viterbi over an int-encoded sentence, using the calling thread's scratch buffers
+     * @param wordIds word IDs as returned by firstOrder().encode, UNKNOWN_WORD for unseen words
+     * @return tag ID of every word, -1 throughout if no tag sequence reaches the last word
+     */
+    public int[] decode(int[] wordIds) {
+        ViterbiScratch scratch = ViterbiScratch.forCurrentThread();
+        scratch.ensureCapacity(wordIds.length, numPairs * numPairs);
+        decodeInto(wordIds, wordIds.length, scratch);
+        return Arrays.copyOf(scratch.path, wordIds.length);
+    }
+
+    /**
+     * scores one tagging of a sentence the way the decoder does, so a decoded path can be checked against others
+     * @param wordIds word IDs as returned by firstOrder().encode, UNKNOWN_WORD for unseen words
+     * @param tagIds a tag ID of firstOrder() for every word
+     * @return log-prob of the tagging, -infinity if it passes through a pair of tags the model never saw together
+     */
+    public double score(int[] wordIds, int[] tagIds) {
+        ViterbiScratch scratch = ViterbiScratch.forCurrentThread();
+        scratch.ensureCapacity(wordIds.length, numPairs * numPairs);
+        double score = 0;
+        int u = 0; // #
+        int v = 0; // #
+        for (int i = 0; i < wordIds.length; i++) {
+            int w = tagIds[i] + 1;
+            int offset = pairOffsets[u * numPairs + v];
+            int k = offset < 0 ? -1 : Arrays.binarySearch(successors[v], w);
+            if (k < 0) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            score += transitions[offset + k] + firstOrder.emissionColumn(wordIds[i], scratch)[w - 1];
+            u = v;
+            v = w;
+        }
+        return score;
+    }
+
+    /**
+     * tags a test file and compares the result with its tags file, like Sudi.findAccuracy on one thread
+     * @param sentencesFile the text file containing the actual sentences and words
+     * @param tagsFile the text file containing the POS states
+     * @return a String with the total number of correct tags and the percentage
+     */
+    public String findAccuracy(String sentencesFile, String tagsFile) {
+        ViterbiScratch scratch = ViterbiScratch.forCurrentThread();
+
+        try (TaggedCorpus corpus = new TaggedCorpus(Paths.get(sentencesFile), Paths.get(tagsFile),
+                firstOrder::wordId, firstOrder::tagId, false)) {
+            int correct = 0; // correct tag predictions in entire file
+            int total = 0; // total tags in entire file
+            while (corpus.next()) {
+                int length = corpus.wordCount();
+                scratch.ensureCapacity(length, numPairs * numPairs);
+                decodeInto(corpus.wordIds(), length, scratch);
+                for (int i = 0; i < Math.min(length, corpus.tagCount()); i++) {
+                    // tags the model never saw have ID -1, which no decoded tag has
+                    if (scratch.path[i] >= 0 && scratch.path[i] == corpus.tagIds()[i]) {
+                        correct++;
+                    }
+                    total++;
+                }
+            }
+            return correct + " correct tags out of " + total + " tags in this file, for a percentage of " +
+                    ((double) correct / total) * 100 + "%\n";
+        }
+        catch (IOException exception) {
+            System.out.println("Sorry, this does not work. Here is the error: " + exception.getMessage());
+        }
+
+        return "";
+    }
+
+    /**
+     * runs the second-order viterbi recurrence and backtrace, leaving the tag IDs in scratch.path
+     * @param wordIds int-encoded sentence
+     * @param length number of words of wordIds to decode
+     * @param scratch lattice buffers, already grown to fit length words over P * P pairs
+     */
+    void decodeInto(int[] wordIds, int length, ViterbiScratch scratch) {
+        if (length == 0) {
+            return;
+        }
+        TaggerMetrics metrics = Metrics.current();
+        long started = metrics == TaggerMetrics.NOOP ? 0 : System.nanoTime();
+        long statesExpanded = forward(wordIds, length, scratch);
+        backtrace(length, scratch);
+        if (metrics != TaggerMetrics.NOOP) {
+            int unknownWords = 0;
+            int penalizedWords = 0;
+            for (int i = 0; i < length; i++) {
+                if (wordIds[i] == CompiledModel.UNKNOWN_WORD) {
+                    unknownWords++;
+                    penalizedWords++;
+                }
+                else if (scratch.path[i] >= 0
+                        && firstOrder.emissionColumn(wordIds[i], scratch)[scratch.path[i]] == CompiledModel.UNSEEN) {
+                    penalizedWords++;
+                }
+            }
+            metrics.sentenceDecoded(length, unknownWords, penalizedWords, statesExpanded,
+                    System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * fills the pair lattice; a column's scores are -infinity except for the pairs in its active list, so clearing a
+     * column only touches the pairs it reached
+     * @return number of pairs expanded, counting # #
+     */
+    private long forward(int[] wordIds, int length, ViterbiScratch scratch) {
+        int pairCells = numPairs * numPairs;
+        int[] backtrack = scratch.backtrack;
+        double[] currScores = scratch.currScores;
+        Arrays.fill(currScores, 0, pairCells, Double.NEGATIVE_INFINITY);
+        Arrays.fill(scratch.nextScores, 0, pairCells, Double.NEGATIVE_INFINITY);
+
+        // the first column comes from # #, into pairs # v
+        double[] observation = firstOrder.emissionColumn(wordIds[0], scratch);
+        int[] active = scratch.active;
+        int activeCount = 0;
+        int offset = pairOffsets[0];
+        for (int k = 0; k < successors[0].length; k++) {
+            int v = successors[0][k];
+            currScores[v] = transitions[offset + k] + observation[v - 1];
+            active[activeCount++] = v;
+        }
+        long statesExpanded = 1;
+
+        // every later column extends each reached pair u v by each w that may follow v, into pair v w
+        for (int i = 1; i < length; i++) {
+            observation = firstOrder.emissionColumn(wordIds[i], scratch);
+            currScores = scratch.currScores;
+            double[] nextScores = scratch.nextScores;
+            active = scratch.active;
+            int[] nextActive = scratch.nextActive;
+            int nextCount = 0;
+            int backtrackRow = i * pairCells;
+            statesExpanded += activeCount;
+            for (int a = 0; a < activeCount; a++) {
+                int pair = active[a];
+                double currScore = currScores[pair];
+                int u = pair / numPairs;
+                int v = pair - u * numPairs;
+                int pairOffset = pairOffsets[pair];
+                int[] next = successors[v];
+                int nextRow = v * numPairs;
+                for (int k = 0; k < next.length; k++) {
+                    int w = next[k];
+                    int nextPair = nextRow + w;
+                    double nextScore = currScore + transitions[pairOffset + k] + observation[w - 1];
+                    if (nextScore > nextScores[nextPair]) {
+                        if (nextScores[nextPair] == Double.NEGATIVE_INFINITY) {
+                            nextActive[nextCount++] = nextPair;
+                        }
+                        nextScores[nextPair] = nextScore;
+                        backtrack[backtrackRow + nextPair] = u;
+                    }
+                }
+            }
+            // clear the column just read, so it can be written as the next one
+            for (int a = 0; a < activeCount; a++) {
+                currScores[active[a]] = Double.NEGATIVE_INFINITY;
+            }
+            scratch.swapScores();
+            scratch.swapActive();
+            activeCount = nextCount;
+        }
+        return statesExpanded;
+    }
+
+    /**
+     * finds the best pair of the last column, the first in ascending order on ties, then follows the backpointers
+     * into scratch.path
+     */
+    private void backtrace(int length, ViterbiScratch scratch) {
+        double[] currScores = scratch.currScores;
+        int[] backtrack = scratch.backtrack;
+        int[] path = scratch.path;
+        int pairCells = numPairs * numPairs;
+        int best = -1;
+        double maxNum = Double.NEGATIVE_INFINITY;
+        for (int pair = 0; pair < pairCells; pair++) {
+            if (currScores[pair] > maxNum) {
+                maxNum = currScores[pair];
+                best = pair;
+            }
+        }
+        if (best < 0) {
+            Arrays.fill(path, 0, length, -1); // no tag sequence reaches the last word
+            return;
+        }
+        int u = best / numPairs;
+        int v = best % numPairs;
+        path[length - 1] = v - 1;
+        if (length > 1) {
+            path[length - 2] = u - 1;
+        }
+        for (int i = length - 1; i >= 2; i--) {
+            int before = backtrack[i * pairCells + u * numPairs + v];
+            path[i - 2] = before - 1;
+            v = u;
+            u = before;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package postagger;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * Max-plus kernel over jdk.incubator.vector. Like the scalar loop, it runs row by row over the reached states of the
+ * current column, so the transition matrix is read in order; each row updates a whole vector of next states at a time,
+ * blending the better sums into the next column and the state into a column of backpointers kept as doubles, which
+ * are copied into the int backtrack once the column is done. An impossible transition sums to -infinity, which is
+ * never strictly larger than a score, so unlike the scalar loop it needs no branch to skip one. Only loaded by
+ * MaxPlus, by name, when the module is there.
+ **/
+
+final class VectorMaxPlus implements MaxPlus.Kernel {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    VectorMaxPlus() {
+        if (DOUBLES.length() < 4) {
+            // narrower vectors are not worth it, and some are not compiled to vector instructions
+            throw new UnsupportedOperationException(DOUBLES.length() + " doubles per vector");
+        }
+    }
+
+    @Override
+    public int column(double[] currScores, double[] transitions, double[] observation, double[] nextScores,
+                      int[] backtrack, int backtrackRow, int numTags, double[] origins) {
+        int bound = DOUBLES.loopBound(numTags);
+        Arrays.fill(origins, 0, bound, -1.0);
+        int reached = 0;
+        for (int curr = 0; curr < numTags; curr++) {
+            double currScore = currScores[curr];
+            if (currScore == Double.NEGATIVE_INFINITY) {
+                continue;
+            }
+            reached++;
+            DoubleVector score = DoubleVector.broadcast(DOUBLES, currScore);
+            DoubleVector state = DoubleVector.broadcast(DOUBLES, curr);
+            int transitionRow = curr * numTags;
+            int next = 0;
+            for (; next < bound; next += DOUBLES.length()) {
+                // same order of additions as the scalar loop, so the sums are the same to the bit
+                DoubleVector nextScore = score.add(DoubleVector.fromArray(DOUBLES, transitions, transitionRow + next))
+                        .add(DoubleVector.fromArray(DOUBLES, observation, next));
+                DoubleVector best = DoubleVector.fromArray(DOUBLES, nextScores, next);
+                VectorMask<Double> better = nextScore.compare(VectorOperators.GT, best);
+                best.blend(nextScore, better).intoArray(nextScores, next);
+                DoubleVector.fromArray(DOUBLES, origins, next).blend(state, better).intoArray(origins, next);
+            }
+            // the states past the last whole vector
+            for (; next < numTags; next++) {
+                double nextScore = currScore + transitions[transitionRow + next] + observation[next];
+                if (nextScore > nextScores[next]) {
+                    nextScores[next] = nextScore;
+                    backtrack[backtrackRow + next] = curr;
+                }
+            }
+        }
+        // states no sum reached keep whatever backpointer they held, as in the scalar loop
+        for (int next = 0; next < bound; next++) {
+            if (origins[next] >= 0) {
+                backtrack[backtrackRow + next] = (int) origins[next];
+            }
+        }
+        return reached;
+    }
+}
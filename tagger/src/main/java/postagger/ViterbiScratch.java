@@ -0,0 +1,75 @@
+package postagger;
+
+/**
+ * Reusable lattice buffers for CompiledModel decoding. One instance belongs to one thread; its arrays only grow, when
+ * a longer sentence or a larger tagset arrives, so decoding in steady state allocates nothing but the result.
+ **/
+
+public final class ViterbiScratch {
+    private static final ThreadLocal<ViterbiScratch> PER_THREAD = ThreadLocal.withInitial(ViterbiScratch::new);
+
+    double[] currScores = new double[0]; // scores of the column being read
+    double[] nextScores = new double[0]; // scores of the column being written
+    double[] observation = new double[0]; // emission column of the current word, when the lexicon copies it
+    int[] active = new int[0]; // states kept by pruning, in ascending order
+    int[] nextActive = new int[0]; // states reached in the column being written, for TrigramModel
+    double[] selection = new double[0]; // scores being partitioned to find the beam threshold
+    int[] backtrack = new int[0]; // backtrack[i * T + state]: best previous state of state at word i
+    int[] wordIds = new int[0]; // int-encoded sentence being decoded
+    int[] path = new int[0]; // decoded tag IDs, filled in by the backtrace
+    double[] origins = new double[0]; // backpointers of the column being written, as doubles, for VectorMaxPlus
+
+    /**
+     * @return the scratch buffers owned by the calling thread
+     */
+    public static ViterbiScratch forCurrentThread() {
+        return PER_THREAD.get();
+    }
+
+    /**
+     * grows the buffers so they fit a sentence of the given length over the given number of tags
+     * @param length number of words in the sentence
+     * @param numTags number of tags in the model, or of tag pairs for TrigramModel
+     */
+    void ensureCapacity(int length, int numTags) {
+        if (currScores.length < numTags) {
+            currScores = new double[numTags];
+            nextScores = new double[numTags];
+            observation = new double[numTags];
+            active = new int[numTags];
+            nextActive = new int[numTags];
+            selection = new double[numTags];
+            origins = new double[numTags];
+        }
+        if (wordIds.length < length) {
+            int grown = Math.max(length, wordIds.length * 2);
+            wordIds = new int[grown];
+            path = new int[grown];
+        }
+        long cells = (long) length * numTags;
+        if (cells > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("sentence of " + length + " words is too long to decode");
+        }
+        if (backtrack.length < cells) {
+            backtrack = new int[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(cells, backtrack.length * 2L))];
+        }
+    }
+
+    /**
+     * swaps the current and next active lists after a column is finished
+     */
+    void swapActive() {
+        int[] swap = active;
+        active = nextActive;
+        nextActive = swap;
+    }
+
+    /**
+     * swaps the current and next score rows after a column is finished
+     */
+    void swapScores() {
+        double[] swap = currScores;
+        currScores = nextScores;
+        nextScores = swap;
+    }
+}